@@ -2,32 +2,39 @@ package com.example.mytablayout;
 
 import android.os.Bundle;
 import android.support.annotation.NonNull;
-import android.support.annotation.Nullable;
-import android.support.v4.app.Fragment;
-import android.util.Log;
-import android.view.LayoutInflater;
 import android.view.View;
-import android.view.ViewGroup;
 import android.widget.TextView;
 
-import static android.support.constraint.Constraints.TAG;
+public class CommonFragment extends LazyFragment {
+    private static final String ARG_TITLE = "title";
+    private static final String ARG_COLOR = "color";
 
-public class CommonFragment extends Fragment {
     private TextView mTextView;
-    private String mTitle;
-    private int mColor;
-    @Nullable
+
+    /**
+     * 数据通过arguments传递, fragment被系统或者LruFragmentPagerAdapter重建之后仍然可用
+     */
+    public static CommonFragment newInstance(String title, int color) {
+        Bundle args = new Bundle();
+        args.putString(ARG_TITLE, title);
+        args.putInt(ARG_COLOR, color);
+        CommonFragment fragment = new CommonFragment();
+        fragment.setArguments(args);
+        return fragment;
+    }
+
     @Override
-    public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
-        View view = inflater.inflate(R.layout.fragment_layout, container, false);
-        mTextView = (TextView) view.findViewById(R.id.text);
-        mTextView.setText(mTitle);
-        mTextView.setTextColor(mColor);
-        return view;
+    protected int getContentLayoutId() {
+        return R.layout.fragment_layout;
     }
 
-    public void setTextView(String text, int color) {
-        this.mTitle = text;
-        this.mColor = color;
+    @Override
+    protected void onContentViewCreated(@NonNull View contentView) {
+        mTextView = (TextView) contentView.findViewById(R.id.text);
+        Bundle args = getArguments();
+        if (args != null) {
+            mTextView.setText(args.getString(ARG_TITLE));
+            mTextView.setTextColor(args.getInt(ARG_COLOR));
+        }
     }
 }
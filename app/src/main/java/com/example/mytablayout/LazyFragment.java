@@ -0,0 +1,195 @@
+package com.example.mytablayout;
+
+import android.os.Bundle;
+import android.support.annotation.LayoutRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
+import android.support.v4.view.AsyncLayoutInflater;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+/**
+ * 延迟加载内容的页面fragment
+ *
+ * ViewPager会提前创建左右相邻的页面, 开启延迟加载之后离屏的页面只创建一个空的FrameLayout作为占位,
+ * LAZY_MODE_PLACEHOLDER模式下第一次显示时才在主线程加载真正的内容布局(getContentLayoutId()),
+ * LAZY_MODE_ASYNC模式下创建占位之后立即在后台线程inflate, 滑动露出页面之前通常已经完成, 不会显示空白
+ * 一开始就可见的页面(例如第一页)总是同步加载, 避免闪一下空白
+ *
+ * 可见性由PagerAdapter.setPrimaryItem()设置的setUserVisibleHint()和fragment的resume状态共同决定,
+ * 内容加载完成并且可见时回调onPageVisible(), 之后不可见时回调onPageHidden()
+ *
+ * 注意: 延迟加载的内容在onCreateView()之后才加入, 不会自动恢复其中view的状态(例如EditText的文本)
+ */
+public abstract class LazyFragment extends Fragment {
+    public static final int LAZY_MODE_NONE = 0;                      // 不延迟, onCreateView()时直接加载内容
+    public static final int LAZY_MODE_PLACEHOLDER = 1;               // 离屏时只创建占位, 第一次显示时在主线程加载
+    public static final int LAZY_MODE_ASYNC = 2;                     // 离屏时先创建占位, 同时在后台线程inflate
+
+    private static final String ARG_LAZY_MODE = "lazy_fragment:lazy_mode";
+
+    private FrameLayout mContainer;                                  // 占位view, 内容加载之后作为内容的父view
+    private View mContentView;                                       // 加载完成的内容
+    private boolean mContentLoading;                                 // 是否正在后台inflate内容
+    private boolean mPageVisible;                                    // 上一次回调的可见状态
+    private AsyncLayoutInflater mAsyncInflater;
+
+    /**
+     * 设置延迟加载的模式, 保存在arguments中, fragment重建之后仍然有效
+     * 需要在fragment被添加之前调用
+     */
+    public LazyFragment setLazyMode(int lazyMode) {
+        Bundle args = getArguments();
+        if (args == null) {
+            args = new Bundle();
+            setArguments(args);
+        }
+        args.putInt(ARG_LAZY_MODE, lazyMode);
+        return this;
+    }
+
+    public int getLazyMode() {
+        Bundle args = getArguments();
+        return args != null ? args.getInt(ARG_LAZY_MODE, LAZY_MODE_NONE) : LAZY_MODE_NONE;
+    }
+
+    /**
+     * 真正的内容布局
+     */
+    @LayoutRes
+    protected abstract int getContentLayoutId();
+
+    /**
+     * 内容布局加载完成, 在这里绑定数据, 延迟加载时会晚于onCreateView()调用
+     */
+    protected abstract void onContentViewCreated(@NonNull View contentView);
+
+    /**
+     * 页面变为可见, 此时内容已经加载完成
+     */
+    protected void onPageVisible() {
+    }
+
+    /**
+     * 页面变为不可见, 例如切换到了其他页面或者fragment pause
+     */
+    protected void onPageHidden() {
+    }
+
+    /**
+     * 在页面显示之前提前加载内容, 例如滑动时预加载前方的页面, 不会回调onPageVisible()
+     * view还没有创建或者内容已经加载时不做任何事
+     */
+    public void prefetchContent() {
+        if (mContainer != null && mContentView == null) {
+            loadContent();
+        }
+    }
+
+    /**
+     * 内容是否已经加载完成
+     */
+    public boolean isContentLoaded() {
+        return mContentView != null;
+    }
+
+    @Nullable
+    @Override
+    public final View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
+        mContainer = new FrameLayout(inflater.getContext());
+        int lazyMode = getLazyMode();
+        if (lazyMode == LAZY_MODE_NONE || getUserVisibleHint()) {
+            setContentView(inflater.inflate(getContentLayoutId(), mContainer, false));
+        } else if (lazyMode == LAZY_MODE_ASYNC) {
+            // 不占用主线程, 离屏时就开始加载, 等到显示时再加载会先露出空白的占位
+            loadContent();
+        }
+        return mContainer;
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        dispatchPageVisibility(false);
+        // 后台inflate的结果通过parent判断是否还有效
+        mContainer = null;
+        mContentView = null;
+        mContentLoading = false;
+    }
+
+    @Override
+    public void setUserVisibleHint(boolean isVisibleToUser) {
+        super.setUserVisibleHint(isVisibleToUser);
+        updatePageVisibility();
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        updatePageVisibility();
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        updatePageVisibility();
+    }
+
+    /**
+     * 可见时加载还没有加载的内容, 并回调可见性的变化
+     */
+    private void updatePageVisibility() {
+        boolean visible = mContainer != null && isResumed() && getUserVisibleHint();
+        if (visible && mContentView == null) {
+            loadContent();
+        }
+        dispatchPageVisibility(visible && mContentView != null);
+    }
+
+    private void dispatchPageVisibility(boolean visible) {
+        if (visible == mPageVisible) {
+            return;
+        }
+        mPageVisible = visible;
+        if (visible) {
+            onPageVisible();
+        } else {
+            onPageHidden();
+        }
+    }
+
+    private void loadContent() {
+        if (getLazyMode() != LAZY_MODE_ASYNC) {
+            setContentView(getLayoutInflater().inflate(getContentLayoutId(), mContainer, false));
+            return;
+        }
+        if (mContentLoading) {
+            return;
+        }
+        mContentLoading = true;
+        if (mAsyncInflater == null) {
+            mAsyncInflater = new AsyncLayoutInflater(mContainer.getContext());
+        }
+        mAsyncInflater.inflate(getContentLayoutId(), mContainer, new AsyncLayoutInflater.OnInflateFinishedListener() {
+            @Override
+            public void onInflateFinished(@NonNull View view, int resid, @Nullable ViewGroup parent) {
+                if (parent != mContainer) {
+                    // view已经被销毁或者重新创建了
+                    return;
+                }
+                mContentLoading = false;
+                setContentView(view);
+                updatePageVisibility();
+            }
+        });
+    }
+
+    private void setContentView(View contentView) {
+        mContentView = contentView;
+        mContainer.addView(contentView);
+        onContentViewCreated(contentView);
+    }
+}
@@ -0,0 +1,313 @@
+package com.example.mytablayout;
+
+import android.os.Bundle;
+import android.os.Parcelable;
+import android.support.annotation.NonNull;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentManager;
+import android.support.v4.app.FragmentTransaction;
+import android.support.v4.view.PagerAdapter;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.example.mytablayout.tab.SlidingTabLayout;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 最多在内存中保留固定数量离屏fragment的PagerAdapter
+ *
+ * ViewPager销毁一个页面时先detach对应的fragment(保留实例, 只销毁view), 放入LRU缓存, 再次显示时直接attach
+ * 缓存超过上限后最早离开屏幕的fragment会被淘汰: 保存它的状态(saveFragmentInstanceState)后移除,
+ * 再次显示时通过getItem()重新创建并恢复状态, 与FragmentStatePagerAdapter一致
+ *
+ * 所以getItem()创建的fragment只能通过setArguments()传递数据, 不能在创建之后调用setter,
+ * 否则被淘汰之后重建的fragment会丢失这些数据
+ * 与FragmentStatePagerAdapter一样不支持页面的移动, getItemPosition()默认返回POSITION_UNCHANGED
+ *
+ * 实现了SlidingTabLayout.PagePrefetcher, 通过SlidingTabLayout.setPagePrefetcher()设置之后,
+ * 滑动时先加载正在露出的LazyFragment的内容, 再提前创建ViewPager离屏范围之外前方的fragment
+ * 方向反转或者滑动停止时, 还没有被ViewPager使用的预加载fragment会被移除, 不占用LRU缓存
+ */
+public abstract class LruFragmentPagerAdapter extends PagerAdapter implements SlidingTabLayout.PagePrefetcher {
+    private static final int DEFAULT_MAX_CACHED_PAGES = 3;           // 默认保留的离屏fragment数量
+
+    private final FragmentManager mFragmentManager;
+    private FragmentTransaction mCurTransaction;                     // 一次更新中合并的transaction
+    private Fragment mCurrentPrimaryItem;                            // 当前显示的fragment
+
+    private final SparseArray<Fragment> mFragments = new SparseArray<>(); // 内存中所有的fragment, 包括已经detach的
+    // 已经detach的fragment, 按照离开屏幕的先后排序, 最早的在前面
+    private final LinkedHashMap<Integer, Fragment> mDetachedFragments = new LinkedHashMap<>();
+    private final SparseArray<Fragment.SavedState> mSavedStates = new SparseArray<>(); // 被淘汰的fragment的状态
+    private int mMaxCachedPages;                                     // 最多保留的离屏fragment数量
+    private int mContainerId = View.NO_ID;                           // ViewPager的id, 预加载时创建fragment需要
+    private final SparseBooleanArray mPrefetchedPositions = new SparseBooleanArray(); // 预加载创建, 还没有被ViewPager使用的页面
+
+    private int mEvictionCount;                                      // 淘汰的次数
+    private int mRestoreCount;                                       // 从保存的状态重建的次数
+
+    public LruFragmentPagerAdapter(FragmentManager fm) {
+        this(fm, DEFAULT_MAX_CACHED_PAGES);
+    }
+
+    public LruFragmentPagerAdapter(FragmentManager fm, int maxCachedPages) {
+        mFragmentManager = fm;
+        mMaxCachedPages = Math.max(maxCachedPages, 0);
+    }
+
+    /**
+     * 创建position对应的fragment, 数据只能通过setArguments()传递
+     */
+    public abstract Fragment getItem(int position);
+
+    /**
+     * 设置最多保留的离屏fragment数量, 不包括ViewPager正在使用的页面, 0表示离开屏幕就淘汰
+     */
+    public void setMaxCachedPages(int maxCachedPages) {
+        mMaxCachedPages = Math.max(maxCachedPages, 0);
+        if (mDetachedFragments.size() > mMaxCachedPages) {
+            trimCache();
+            commitTransaction();
+        }
+    }
+
+    /**
+     * 内存中fragment的数量, 包括ViewPager正在使用的和缓存的
+     */
+    public int getLiveFragmentCount() {
+        return mFragments.size();
+    }
+
+    /**
+     * 淘汰的次数
+     */
+    public int getEvictionCount() {
+        return mEvictionCount;
+    }
+
+    /**
+     * 从保存的状态重建fragment的次数
+     */
+    public int getRestoreCount() {
+        return mRestoreCount;
+    }
+
+    @Override
+    public void startUpdate(@NonNull ViewGroup container) {
+        if (container.getId() == View.NO_ID) {
+            throw new IllegalStateException("ViewPager with adapter " + this + " requires a view id");
+        }
+        mContainerId = container.getId();
+    }
+
+    @NonNull
+    @Override
+    public Object instantiateItem(@NonNull ViewGroup container, int position) {
+        Fragment fragment = mFragments.get(position);
+        mPrefetchedPositions.delete(position);
+        if (fragment != null) {
+            // 还在缓存中, 直接attach
+            if (mDetachedFragments.remove(position) != null) {
+                ensureTransaction().attach(fragment);
+            }
+            return fragment;
+        }
+
+        fragment = getItem(position);
+        Fragment.SavedState savedState = mSavedStates.get(position);
+        if (savedState != null) {
+            fragment.setInitialSavedState(savedState);
+            mSavedStates.remove(position);
+            mRestoreCount++;
+        }
+        fragment.setMenuVisibility(false);
+        fragment.setUserVisibleHint(false);
+        mFragments.put(position, fragment);
+        ensureTransaction().add(container.getId(), fragment);
+        return fragment;
+    }
+
+    @Override
+    public void destroyItem(@NonNull ViewGroup container, int position, @NonNull Object object) {
+        Fragment fragment = (Fragment) object;
+        if (mFragments.get(position) != fragment) {
+            // 位置已经失效, 例如数据变少之后
+            ensureTransaction().remove(fragment);
+            return;
+        }
+        ensureTransaction().detach(fragment);
+        mDetachedFragments.put(position, fragment);
+        trimCache();
+    }
+
+    /**
+     * 淘汰最早离开屏幕的fragment, 直到缓存的数量不超过上限
+     */
+    private void trimCache() {
+        Iterator<Map.Entry<Integer, Fragment>> iterator = mDetachedFragments.entrySet().iterator();
+        while (mDetachedFragments.size() > mMaxCachedPages && iterator.hasNext()) {
+            Map.Entry<Integer, Fragment> eldest = iterator.next();
+            iterator.remove();
+            int position = eldest.getKey();
+            Fragment fragment = eldest.getValue();
+            if (fragment.isAdded()) {
+                mSavedStates.put(position, mFragmentManager.saveFragmentInstanceState(fragment));
+            }
+            mFragments.remove(position);
+            mPrefetchedPositions.delete(position);
+            ensureTransaction().remove(fragment);
+            mEvictionCount++;
+        }
+    }
+
+    /**
+     * 预加载position对应的页面
+     * 还没有创建的fragment会被创建并立即detach, 只执行到onCreate(), 放入缓存等待ViewPager使用
+     * 已经创建的LazyFragment提前加载内容
+     */
+    @Override
+    public void prefetchPage(int position) {
+        if (position < 0 || position >= getCount()) {
+            return;
+        }
+        Fragment fragment = mFragments.get(position);
+        if (fragment == null) {
+            if (mContainerId == View.NO_ID || mSavedStates.get(position) != null || mMaxCachedPages == 0) {
+                // 还没有关联ViewPager, 需要恢复状态的页面交给instantiateItem()处理, 没有缓存时创建之后会被立即淘汰
+                return;
+            }
+            fragment = getItem(position);
+            fragment.setMenuVisibility(false);
+            fragment.setUserVisibleHint(false);
+            mFragments.put(position, fragment);
+            ensureTransaction().add(mContainerId, fragment).detach(fragment);
+            mDetachedFragments.put(position, fragment);
+            mPrefetchedPositions.put(position, true);
+            trimCache();
+            commitTransaction();
+        } else if (fragment instanceof LazyFragment && !mDetachedFragments.containsKey(position)) {
+            ((LazyFragment) fragment).prefetchContent();
+        }
+    }
+
+    /**
+     * 移除预加载创建但是还没有被ViewPager使用的fragment, 它们在反方向上, 继续留在缓存中会淘汰刚刚离开屏幕的页面
+     * 已经开始的LazyFragment后台inflate会继续完成, 结果保留在fragment中
+     */
+    @Override
+    public void cancelPrefetch() {
+        for (int i = 0; i < mPrefetchedPositions.size(); i++) {
+            int position = mPrefetchedPositions.keyAt(i);
+            Fragment fragment = mDetachedFragments.remove(position);
+            if (fragment != null) {
+                mFragments.remove(position);
+                ensureTransaction().remove(fragment);
+            }
+        }
+        mPrefetchedPositions.clear();
+        commitTransaction();
+    }
+
+    @Override
+    public void setPrimaryItem(@NonNull ViewGroup container, int position, @NonNull Object object) {
+        Fragment fragment = (Fragment) object;
+        if (fragment != mCurrentPrimaryItem) {
+            if (mCurrentPrimaryItem != null) {
+                mCurrentPrimaryItem.setMenuVisibility(false);
+                mCurrentPrimaryItem.setUserVisibleHint(false);
+            }
+            fragment.setMenuVisibility(true);
+            fragment.setUserVisibleHint(true);
+            mCurrentPrimaryItem = fragment;
+        }
+    }
+
+    @Override
+    public void finishUpdate(@NonNull ViewGroup container) {
+        commitTransaction();
+    }
+
+    private FragmentTransaction ensureTransaction() {
+        if (mCurTransaction == null) {
+            mCurTransaction = mFragmentManager.beginTransaction();
+        }
+        return mCurTransaction;
+    }
+
+    private void commitTransaction() {
+        if (mCurTransaction != null) {
+            mCurTransaction.commitNowAllowingStateLoss();
+            mCurTransaction = null;
+        }
+    }
+
+    @Override
+    public boolean isViewFromObject(@NonNull View view, @NonNull Object object) {
+        return ((Fragment) object).getView() == view;
+    }
+
+    @Override
+    public Parcelable saveState() {
+        Bundle state = new Bundle();
+        int savedCount = mSavedStates.size();
+        int[] savedPositions = new int[savedCount];
+        Fragment.SavedState[] savedStates = new Fragment.SavedState[savedCount];
+        for (int i = 0; i < savedCount; i++) {
+            savedPositions[i] = mSavedStates.keyAt(i);
+            savedStates[i] = mSavedStates.valueAt(i);
+        }
+        state.putIntArray("savedPositions", savedPositions);
+        state.putParcelableArray("savedStates", savedStates);
+
+        // 内存中的fragment由FragmentManager保存, 这里只记录position
+        for (int i = 0; i < mFragments.size(); i++) {
+            Fragment fragment = mFragments.valueAt(i);
+            if (fragment.isAdded()) {
+                mFragmentManager.putFragment(state, "f" + mFragments.keyAt(i), fragment);
+            }
+        }
+        return state;
+    }
+
+    @Override
+    public void restoreState(Parcelable state, ClassLoader loader) {
+        if (!(state instanceof Bundle)) {
+            return;
+        }
+        Bundle bundle = (Bundle) state;
+        bundle.setClassLoader(loader);
+        mSavedStates.clear();
+        mFragments.clear();
+        mDetachedFragments.clear();
+        mPrefetchedPositions.clear();
+
+        int[] savedPositions = bundle.getIntArray("savedPositions");
+        Parcelable[] savedStates = bundle.getParcelableArray("savedStates");
+        if (savedPositions != null && savedStates != null) {
+            for (int i = 0; i < savedPositions.length && i < savedStates.length; i++) {
+                mSavedStates.put(savedPositions[i], (Fragment.SavedState) savedStates[i]);
+            }
+        }
+
+        for (String key : bundle.keySet()) {
+            if (!key.startsWith("f")) {
+                continue;
+            }
+            Fragment fragment = mFragmentManager.getFragment(bundle, key);
+            if (fragment == null) {
+                continue;
+            }
+            int position = Integer.parseInt(key.substring(1));
+            fragment.setMenuVisibility(false);
+            mFragments.put(position, fragment);
+            if (fragment.isDetached()) {
+                mDetachedFragments.put(position, fragment);
+            }
+        }
+    }
+}
@@ -31,8 +31,11 @@ public class MyTabActivity extends AppCompatActivity {
         layout.setIndicatorBottomMargin(DisplayUtils.getInstance(this).dip2px(6));
         layout.setSelectedTitleColor(getResources().getColorStateList(R.color.tab_text_color, null));
 
-        viewPager.setAdapter(new MyFragmentPagerAdapter(getSupportFragmentManager()));
+        MyFragmentPagerAdapter adapter = new MyFragmentPagerAdapter(getSupportFragmentManager());
+        viewPager.setAdapter(adapter);
 
         layout.setViewPager(viewPager);
+        // 滑动时预加载前方的页面
+        layout.setPagePrefetcher(adapter);
     }
 }
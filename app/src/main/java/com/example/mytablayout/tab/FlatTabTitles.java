@@ -0,0 +1,141 @@
+package com.example.mytablayout.tab;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.BoringLayout;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+
+import java.util.Locale;
+
+/**
+ * 平铺模式下的tab title, 不为tab创建子view, 由SlidingTabStrip直接绘制
+ * 每个title的文本布局(BoringLayout/StaticLayout)在后台线程中计算, 全部完成之后在主线程回调一次
+ *
+ * 后台线程使用自己的TextPaint创建文本布局, 回调之后这个TextPaint只在主线程中使用(绘制时设置颜色)
+ */
+class FlatTabTitles {
+
+    /**
+     * 文本布局计算完成的回调, 在主线程中调用
+     */
+    interface Callback {
+        void onTitlesPrepared(FlatTabTitles titles);
+    }
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private int mGeneration;                                         // 每次prepare()加1, 丢弃过期的计算结果
+    private int mCount;                                              // title的数量
+    private Layout[] mLayouts = new Layout[0];                       // 每个title的文本布局
+    private int[] mWidths = new int[0];                              // 每个tab的宽度, 包含左右padding
+    private int mMaxLayoutHeight;                                    // 所有文本布局中最大的高度
+    private int mHorizontalPadding;                                  // tab左右的padding
+    private int mVerticalPadding;                                    // tab上下的padding
+    private TextPaint mPaint;                                        // 文本布局使用的画笔
+
+    /**
+     * 在后台线程中为titles计算文本布局, 完成之后替换当前的结果并回调
+     * 计算完成之前仍然使用上一次的结果
+     *
+     * @param paint 只读取属性, 后台线程使用它的一份拷贝
+     */
+    void prepare(CharSequence[] titles, TextPaint paint, boolean allCaps, int horizontalPadding,
+                 int verticalPadding, final Callback callback) {
+        final int generation = ++mGeneration;
+        final CharSequence[] texts = titles.clone();
+        final TextPaint layoutPaint = new TextPaint(paint);
+        final boolean upperCase = allCaps;
+        final int hPadding = horizontalPadding;
+        final int vPadding = verticalPadding;
+
+        TabPreInflater.getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                final Layout[] layouts = new Layout[texts.length];
+                final int[] widths = new int[texts.length];
+                int maxHeight = 0;
+                for (int i = 0; i < texts.length; i++) {
+                    CharSequence text = texts[i] == null ? "" : texts[i];
+                    if (upperCase) {
+                        text = text.toString().toUpperCase(Locale.getDefault());
+                    }
+                    layouts[i] = makeLayout(text, layoutPaint);
+                    widths[i] = layouts[i].getWidth() + hPadding * 2;
+                    maxHeight = Math.max(maxHeight, layouts[i].getHeight());
+                }
+
+                final int maxLayoutHeight = maxHeight;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mGeneration) {
+                            // 已经有更新的请求了
+                            return;
+                        }
+                        mLayouts = layouts;
+                        mWidths = widths;
+                        mCount = layouts.length;
+                        mMaxLayoutHeight = maxLayoutHeight;
+                        mHorizontalPadding = hPadding;
+                        mVerticalPadding = vPadding;
+                        mPaint = layoutPaint;
+                        callback.onTitlesPrepared(FlatTabTitles.this);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 单行的title使用BoringLayout, 其余的使用StaticLayout
+     */
+    private static Layout makeLayout(CharSequence text, TextPaint paint) {
+        BoringLayout.Metrics metrics = BoringLayout.isBoring(text, paint);
+        if (metrics != null) {
+            return BoringLayout.make(text, paint, metrics.width, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, metrics, false);
+        }
+        int width = (int) Math.ceil(Layout.getDesiredWidth(text, paint));
+        return new StaticLayout(text, paint, width, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, false);
+    }
+
+    /**
+     * 放弃正在进行的计算
+     */
+    void cancel() {
+        mGeneration++;
+    }
+
+    int getCount() {
+        return mCount;
+    }
+
+    int getWidth(int index) {
+        return mWidths[index];
+    }
+
+    Layout getLayout(int index) {
+        return mLayouts[index];
+    }
+
+    /**
+     * tab的高度, 包含上下padding
+     */
+    int getHeight() {
+        return mMaxLayoutHeight + mVerticalPadding * 2;
+    }
+
+    int getHorizontalPadding() {
+        return mHorizontalPadding;
+    }
+
+    /**
+     * 设置绘制文本的颜色, 只能在主线程中调用
+     */
+    void setColor(int color) {
+        if (mPaint != null && mPaint.getColor() != color) {
+            mPaint.setColor(color);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.mytablayout.tab;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+
+/**
+ * 根据滑动的方向和速度, 在主线程空闲的时候预加载即将显示的页面和tab
+ *
+ * 每次onPageScrolled()更新方向和速度, 方向确定之后按照优先级放入队列:
+ * 1. 正在露出的相邻页面, 翻页控件已经创建了它, 但是延迟加载的内容(例如LazyFragment)可能还没有加载
+ * 2. 翻页控件在两侧保留的页面(offscreenPageLimit)之外, 前方的1个页面(快速滑动时2个)
+ * 每次MessageQueue空闲时只处理一项, 不和滑动的绘制抢占时间
+ * 方向反转或者滑动停止时清空队列, 并通知调用方取消
+ *
+ * 只在主线程中使用
+ */
+final class PrefetchScheduler implements MessageQueue.IdleHandler {
+    private static final float FAST_SWIPE_PAGES_PER_SECOND = 2f;     // 超过这个速度时预加载前方2个页面
+    private static final int MIN_SAMPLE_INTERVAL_MS = 8;             // 计算速度的最小时间间隔, 避免同一帧内多次回调导致速度失真
+    private static final int MAX_PREFETCH_PAGES = 2;                 // 离屏范围之外最多预加载的页面数量
+
+    interface Callback {
+        /**
+         * 滑动方向确定了, 预先绑定前方的tab
+         *
+         * @param direction 1表示向后一页滑动, -1表示向前一页滑动
+         */
+        void onPrefetchTabs(int direction);
+
+        /**
+         * 预加载position对应的页面
+         */
+        void onPrefetchPage(int position);
+
+        /**
+         * 方向反转或者滑动停止, 之前的预加载不再需要
+         */
+        void onPrefetchCancelled();
+    }
+
+    private final Callback mCallback;
+
+    private float mLastProgress = -1;                                // 上一次的position + offset, 小于0表示还没有开始
+    private long mLastSampleTime;                                    // 上一次计算速度的时间
+    private int mDirection;                                          // 当前的滑动方向, 0表示还不确定
+
+    private final int[] mPendingPages = new int[1 + MAX_PREFETCH_PAGES]; // 等待预加载的页面, 相邻页面在最前面
+    private int mPendingCount;
+    private int mPendingIndex;                                       // 下一个要处理的页面
+    private int mScheduledNeighbour = -1;                            // 已经安排的相邻页面, 相同的安排不重复加入队列
+    private int mScheduledCount;
+    private boolean mTabsPending;                                    // 是否需要预先绑定tab
+    private boolean mIdleHandlerAdded;
+
+    PrefetchScheduler(Callback callback) {
+        mCallback = callback;
+    }
+
+    /**
+     * 滑动过程中调用, 更新方向和速度并安排预加载
+     *
+     * @param offscreenPages 翻页控件在当前页面两侧已经保留的页面数量
+     */
+    void onPageScrolled(int position, float positionOffset, int pageCount, int offscreenPages) {
+        float progress = position + positionOffset;
+        long now = SystemClock.uptimeMillis();
+        if (mLastProgress < 0) {
+            mLastProgress = progress;
+            mLastSampleTime = now;
+            return;
+        }
+        long elapsed = now - mLastSampleTime;
+        float delta = progress - mLastProgress;
+        if (delta == 0f || elapsed < MIN_SAMPLE_INTERVAL_MS) {
+            return;
+        }
+        float velocity = Math.abs(delta) * 1000f / elapsed;
+        mLastProgress = progress;
+        mLastSampleTime = now;
+
+        int direction = delta > 0 ? 1 : -1;
+        if (direction != mDirection) {
+            if (mDirection != 0) {
+                // 方向反转了, 前方变成了后方
+                cancel();
+            }
+            mDirection = direction;
+            mTabsPending = true;
+        }
+
+        // 向后滑动时正在露出的是position + 1, 向前滑动时是position
+        int neighbour = direction > 0 ? position + 1 : position;
+        int count = velocity >= FAST_SWIPE_PAGES_PER_SECOND ? MAX_PREFETCH_PAGES : 1;
+        schedulePages(neighbour, offscreenPages, count, pageCount);
+    }
+
+    /**
+     * 滑动停止之后调用, 清空队列并重新开始计算方向
+     */
+    void reset() {
+        cancel();
+        mLastProgress = -1;
+    }
+
+    /**
+     * 先安排正在露出的相邻页面, 再安排离屏范围之外的count个页面
+     */
+    private void schedulePages(int neighbour, int offscreenPages, int count, int pageCount) {
+        if (neighbour == mScheduledNeighbour && count <= mScheduledCount && !mTabsPending) {
+            return;
+        }
+        mScheduledNeighbour = neighbour;
+        mScheduledCount = count;
+        mPendingCount = 0;
+        mPendingIndex = 0;
+        addPendingPage(neighbour, pageCount);
+        // 跳过翻页控件已经保留的页面, 没有保留时从相邻页面的下一页开始
+        int first = neighbour + mDirection * Math.max(offscreenPages, 1);
+        for (int i = 0; i < count; i++) {
+            addPendingPage(first + i * mDirection, pageCount);
+        }
+        if (!mIdleHandlerAdded && (mPendingCount > 0 || mTabsPending)) {
+            Looper.myQueue().addIdleHandler(this);
+            mIdleHandlerAdded = true;
+        }
+    }
+
+    private void addPendingPage(int position, int pageCount) {
+        if (position >= 0 && position < pageCount) {
+            mPendingPages[mPendingCount++] = position;
+        }
+    }
+
+    private void cancel() {
+        if (mIdleHandlerAdded) {
+            Looper.myQueue().removeIdleHandler(this);
+            mIdleHandlerAdded = false;
+        }
+        mPendingCount = 0;
+        mPendingIndex = 0;
+        mScheduledNeighbour = -1;
+        mScheduledCount = 0;
+        mTabsPending = false;
+        if (mDirection != 0) {
+            mDirection = 0;
+            mCallback.onPrefetchCancelled();
+        }
+    }
+
+    @Override
+    public boolean queueIdle() {
+        if (mTabsPending) {
+            mTabsPending = false;
+            mCallback.onPrefetchTabs(mDirection);
+        } else if (mPendingIndex < mPendingCount) {
+            mCallback.onPrefetchPage(mPendingPages[mPendingIndex++]);
+        }
+        // 每次空闲只处理一项, 还有剩余时保留IdleHandler, 等待下一次空闲
+        mIdleHandlerAdded = mTabsPending || mPendingIndex < mPendingCount;
+        return mIdleHandlerAdded;
+    }
+}
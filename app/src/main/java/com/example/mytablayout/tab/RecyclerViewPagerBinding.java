@@ -0,0 +1,209 @@
+package com.example.mytablayout.tab;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+/**
+ * 横向RecyclerView翻页的桥接, ViewPager2内部也是同样的结构
+ * RecyclerView需要使用横向的LinearLayoutManager, 每一页占满RecyclerView的宽度,
+ * 翻页对齐由调用方设置的SnapHelper(例如PagerSnapHelper)负责
+ *
+ * 滑动时根据第一个可见的页面计算position和offset, 停下来之后确定选中的页面
+ * RecyclerView没有更换adapter的回调, 调用setAdapter()之后需要调用notifyAdapterChanged()
+ */
+public class RecyclerViewPagerBinding extends TabPagerBinding {
+
+    /**
+     * 提供每一页的title
+     */
+    public interface TitleProvider {
+        CharSequence getPageTitle(int position);
+    }
+
+    private final RecyclerView mRecyclerView;
+    private final TitleProvider mTitleProvider;
+    private RecyclerView.Adapter mObservedAdapter;                   // 正在监听数据变化的adapter
+    private int mCurrentItem;                                        // 当前选中的页面
+
+    private final RecyclerView.OnScrollListener mScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+            if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                // 停下来之后才能确定最终的页面, 先通知选中再通知状态变化, 与ViewPager的顺序一致
+                int settledItem = findSettledItem();
+                if (settledItem != RecyclerView.NO_POSITION && settledItem != mCurrentItem) {
+                    mCurrentItem = settledItem;
+                    dispatchPageSelected(settledItem);
+                }
+            }
+            // RecyclerView的滑动状态取值与ViewPager一致
+            dispatchPageScrollStateChanged(newState);
+        }
+
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            View page = findFirstVisiblePage();
+            if (page == null) {
+                return;
+            }
+            int offsetPixels = recyclerView.getPaddingLeft() - page.getLeft();
+            dispatchPageScrolled(getLayoutManager().getPosition(page), (float) offsetPixels / page.getWidth(), offsetPixels);
+        }
+    };
+
+    // 监听adapter的数据变化, 自动增量更新tab
+    private final RecyclerView.AdapterDataObserver mAdapterObserver = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            onPagesChanged();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            onPagesChanged();
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            onPagesChanged();
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            onPagesChanged();
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            onPagesChanged();
+        }
+    };
+
+    /**
+     * @param titleProvider 实现了SlidingTabLayout.TabIdProvider时, 数据变化只更新变化的tab
+     */
+    public RecyclerViewPagerBinding(RecyclerView recyclerView, TitleProvider titleProvider) {
+        mRecyclerView = recyclerView;
+        mTitleProvider = titleProvider;
+    }
+
+    public RecyclerView getRecyclerView() {
+        return mRecyclerView;
+    }
+
+    /**
+     * RecyclerView调用setAdapter()之后调用, 重新监听并填充所有tab
+     */
+    public void notifyAdapterChanged() {
+        observeAdapter(mRecyclerView.getAdapter());
+        mCurrentItem = 0;
+        dispatchPagesReplaced();
+    }
+
+    @Override
+    protected void onAttach() {
+        mRecyclerView.addOnScrollListener(mScrollListener);
+        observeAdapter(mRecyclerView.getAdapter());
+        int settledItem = findSettledItem();
+        mCurrentItem = settledItem != RecyclerView.NO_POSITION ? settledItem : 0;
+    }
+
+    @Override
+    protected void onDetach() {
+        mRecyclerView.removeOnScrollListener(mScrollListener);
+        observeAdapter(null);
+    }
+
+    /**
+     * 监听adapter的数据变化, 会取消对之前adapter的监听
+     */
+    private void observeAdapter(RecyclerView.Adapter adapter) {
+        if (mObservedAdapter != null) {
+            mObservedAdapter.unregisterAdapterDataObserver(mAdapterObserver);
+        }
+        mObservedAdapter = adapter;
+        if (adapter != null) {
+            adapter.registerAdapterDataObserver(mAdapterObserver);
+        }
+    }
+
+    private void onPagesChanged() {
+        int count = getCount();
+        if (mCurrentItem >= count) {
+            mCurrentItem = Math.max(count - 1, 0);
+        }
+        dispatchPagesChanged();
+    }
+
+    private LinearLayoutManager getLayoutManager() {
+        return (LinearLayoutManager) mRecyclerView.getLayoutManager();
+    }
+
+    /**
+     * 第一个可见的页面, 还没有布局的时候返回null
+     */
+    private View findFirstVisiblePage() {
+        LinearLayoutManager layoutManager = getLayoutManager();
+        if (layoutManager == null) {
+            return null;
+        }
+        int position = layoutManager.findFirstVisibleItemPosition();
+        if (position == RecyclerView.NO_POSITION) {
+            return null;
+        }
+        View page = layoutManager.findViewByPosition(position);
+        return page != null && page.getWidth() > 0 ? page : null;
+    }
+
+    /**
+     * 当前占据大部分宽度的页面
+     */
+    private int findSettledItem() {
+        View page = findFirstVisiblePage();
+        if (page == null) {
+            return RecyclerView.NO_POSITION;
+        }
+        int position = getLayoutManager().getPosition(page);
+        int offsetPixels = mRecyclerView.getPaddingLeft() - page.getLeft();
+        return offsetPixels * 2 >= page.getWidth() && position < getCount() - 1 ? position + 1 : position;
+    }
+
+    @Override
+    public boolean hasPages() {
+        return mRecyclerView.getAdapter() != null;
+    }
+
+    @Override
+    public int getCount() {
+        RecyclerView.Adapter adapter = mRecyclerView.getAdapter();
+        return adapter != null ? adapter.getItemCount() : 0;
+    }
+
+    @Override
+    public CharSequence getPageTitle(int position) {
+        return mTitleProvider.getPageTitle(position);
+    }
+
+    @Override
+    public int getCurrentItem() {
+        return mCurrentItem;
+    }
+
+    @Override
+    public void setCurrentItem(int position) {
+        if (position != mCurrentItem) {
+            // 与ViewPager一致, 开始平滑滑动之前就通知选中
+            mCurrentItem = position;
+            dispatchPageSelected(position);
+        }
+        mRecyclerView.smoothScrollToPosition(position);
+    }
+
+    @Override
+    public SlidingTabLayout.TabIdProvider getTabIdProvider() {
+        return mTitleProvider instanceof SlidingTabLayout.TabIdProvider
+                ? (SlidingTabLayout.TabIdProvider) mTitleProvider : null;
+    }
+}
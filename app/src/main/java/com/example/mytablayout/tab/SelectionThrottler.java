@@ -0,0 +1,103 @@
+package com.example.mytablayout.tab;
+
+import android.os.SystemClock;
+import android.view.View;
+
+/**
+ * 每个SlidingTabLayout各自的点击节流和选中合并
+ *
+ * 点击: 距离上一次接受的点击不足窗口时间的点击会被丢弃, 使用SystemClock.uptimeMillis(),
+ * 不受修改系统时间的影响, 不同的SlidingTabLayout之间互不影响
+ * 选中: 在同一次消息处理中连续请求的选中只执行最后一次, 在下一次消息循环中统一执行
+ *
+ * 记录和合并都只修改字段, 不创建对象, 只在主线程中使用
+ */
+final class SelectionThrottler {
+    static final long DEFAULT_CLICK_WINDOW_MS = 500;                 // 默认的点击间隔0.5s
+
+    interface Target {
+        /**
+         * 合并之后真正执行选中
+         */
+        void onSelect(int position);
+    }
+
+    private final View mHost;                                        // 用来post合并之后的选中
+    private final Target mTarget;
+
+    private long mClickWindowMs = DEFAULT_CLICK_WINDOW_MS;           // 点击的节流窗口, 0表示不节流
+    private long mLastClickTime = -1;                                // 上一次接受点击的时间, 小于0表示还没有点击
+
+    private int mPendingPosition = -1;                               // 等待执行的选中, 小于0表示没有
+    private boolean mSelectionPosted;
+
+    private int mDroppedClickCount;                                  // 被丢弃的点击次数
+    private int mCoalescedSelectionCount;                            // 被后面的请求覆盖的选中次数
+
+    private final Runnable mSelectionRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mSelectionPosted = false;
+            int position = mPendingPosition;
+            mPendingPosition = -1;
+            if (position >= 0) {
+                mTarget.onSelect(position);
+            }
+        }
+    };
+
+    SelectionThrottler(View host, Target target) {
+        mHost = host;
+        mTarget = target;
+    }
+
+    void setClickWindow(long windowMs) {
+        mClickWindowMs = Math.max(windowMs, 0);
+    }
+
+    /**
+     * 点击是否可以被接受, 被接受的点击重新开始计算窗口
+     */
+    boolean acceptClick() {
+        long now = SystemClock.uptimeMillis();
+        if (mLastClickTime >= 0 && now - mLastClickTime < mClickWindowMs) {
+            mDroppedClickCount++;
+            return false;
+        }
+        mLastClickTime = now;
+        return true;
+    }
+
+    /**
+     * 请求选中position, 在下一次消息循环中执行, 之前还没有执行的请求被覆盖
+     */
+    void requestSelection(int position) {
+        if (mPendingPosition >= 0) {
+            mCoalescedSelectionCount++;
+        }
+        mPendingPosition = position;
+        if (!mSelectionPosted) {
+            mHost.post(mSelectionRunnable);
+            mSelectionPosted = true;
+        }
+    }
+
+    /**
+     * 丢弃还没有执行的选中, 例如更换了翻页控件
+     */
+    void cancelPendingSelection() {
+        if (mSelectionPosted) {
+            mHost.removeCallbacks(mSelectionRunnable);
+            mSelectionPosted = false;
+        }
+        mPendingPosition = -1;
+    }
+
+    int getDroppedClickCount() {
+        return mDroppedClickCount;
+    }
+
+    int getCoalescedSelectionCount() {
+        return mCoalescedSelectionCount;
+    }
+}
@@ -2,28 +2,43 @@ package com.example.mytablayout.tab;
 
 import android.content.Context;
 import android.content.res.ColorStateList;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.graphics.Paint;
 import android.graphics.Typeface;
+import android.os.Build;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.ColorInt;
-import android.support.annotation.NonNull;
-import android.support.v4.view.PagerAdapter;
+import android.support.annotation.RequiresApi;
+import android.support.v4.view.ViewCompat;
 import android.support.v4.view.ViewPager;
+import android.text.TextPaint;
+import android.text.TextUtils;
 import android.util.AttributeSet;
-import android.util.Log;
+import android.util.DisplayMetrics;
 import android.util.SparseArray;
 import android.util.TypedValue;
+import android.view.Choreographer;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.FrameLayout;
 import android.widget.HorizontalScrollView;
 import android.widget.LinearLayout;
-import android.widget.RelativeLayout;
 import android.widget.TextView;
 
-import com.example.mytablayout.utils.CommonUtils;
+import com.example.mytablayout.R;
+import com.example.mytablayout.tab.engine.ColorTransitions;
+import com.example.mytablayout.tab.engine.IndicatorMotions;
+import com.example.mytablayout.tab.engine.TabLayoutEngine;
 import com.example.mytablayout.utils.DisplayUtils;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+
 
 /**
  * 首先明确我们要自定义一个TabLayout需要完成那些步骤, 并且外部需要调用那些方法来使用我们自定义的TabLayout
@@ -32,6 +47,7 @@ import com.example.mytablayout.utils.DisplayUtils;
  * 1. 首先找到我们的布局：                    mTabLayout = (SlidingTabLayout) findViewById(R.id.tab_layout);
  * 2. 设置指示器颜色,就是设置tab下划线的颜色：  mTabLayout.setSelectedIndicatorColors(getResources().getColor(R.color.color_transparent));
  * 3. 支持与ViewPager关联：                  mTabLayout.setViewPager(mViewPager);
+ *    或者与横向RecyclerView关联：           mTabLayout.setPagerBinding(new RecyclerViewPagerBinding(recyclerView, titleProvider));
  * 4. 加上一些布局参数的更改就差不多了
  *
  * 明确自定义步骤：
@@ -41,36 +57,66 @@ import com.example.mytablayout.utils.DisplayUtils;
  */
 
 public class SlidingTabLayout extends HorizontalScrollView {
-    private static final String TAG = "自定义->SlidingTabLayout";
+    /*使用这些属性来实现不同滑动动画, 也可以通过setIndicatorAnimationMode(IndicatorMotion)自定义*/
+    public static final int ANI_MODE_NORMAL = IndicatorMotions.MODE_NORMAL;   // 无变化平移
+    public static final int ANI_MODE_TAIL = IndicatorMotions.MODE_TAIL;       // 带小尾巴的效果
+    public static final int ANI_MODE_STRETCH = IndicatorMotions.MODE_STRETCH; // 毛毛虫效果, 先伸长再收缩
+    public static final int ANI_MODE_DOT = IndicatorMotions.MODE_DOT;         // 移动时缩小成一个点, 到达后展开
 
-    /*使用这两个属性来实现不同滑动动画*/
-    public static final int ANI_MODE_NORMAL = 0;                    // 无变化平移
-    public static final int ANI_MODE_TAIL = 1;                      // 带小尾巴的效果
+    public static final int TITLE_EMPHASIS_MODE_SIZE = 0;           // 选中时通过setTextSize放大title, 会触发重新布局
+    public static final int TITLE_EMPHASIS_MODE_SCALE = 1;          // title统一按选中大小布局, 通过scale缩小未选中的title
+
+    /*使用这两个属性来设置滑动时tab的对齐方式*/
+    public static final int SCROLL_MODE_LEFT = TabLayoutEngine.SCROLL_MODE_LEFT;     // 被选中的tab居左, 留出TITLE_OFFSET_DIP的偏移
+    public static final int SCROLL_MODE_CENTER = TabLayoutEngine.SCROLL_MODE_CENTER; // 被选中的tab居中
 
     private final int TITLE_OFFSET_DIP      = 24;                   // title偏移量（dp）
     private final int TAB_VIEW_PADDING_DIP  = 16;                   // tab的padding(dp)
     private final int TAB_VIEW_TEXT_SIZE_SP = 12;                   // tab的text大小（sp）
     private final float DEFAULT_NORMAL_TEXT_SIZE = 16.33f;          // 默认的正常文本大小
     private final float DEFAULT_SELECTED_TEXT_SIZE = 22.67f;        // 默认被选中文本的大小
+    private final int VIRTUAL_EXTRA_TABS = 2;                       // 虚拟化模式下可见区域两侧额外绑定的tab数量
+    private final int VIRTUAL_PREFETCH_TABS = 3;                    // 虚拟化模式下滑动方向前方再额外绑定的tab数量
+    private final int TAB_CHANGE_ANIMATION_DURATION = 150;          // 插入或者移动tab时的渐显动画时长(ms)
+
+    /*tabView的类型, 自定义布局使用布局id作为类型*/
+    private static final int VIEW_TYPE_DEFAULT = 0;                 // 默认的TextView
+    private static final int VIEW_TYPE_PADDING = 1;                 // DISTRIBUTE_MODE_TAB_AS_DIVIDER模式下的分割view
+    private static final int VIEW_TYPE_PLACEHOLDER = 2;             // 后台inflate自定义布局期间显示的占位view
 
     /**
      * 这几个模式就是用来实现不同的tab效果的
      */
-    public static final int DISTRIBUTE_MODE_AVERAGE_SEGMENTATION  = 3;     // 每个item的间隔相同
-    public static final int DISTRIBUTE_MODE_TAB_AS_DIVIDER        = 2;     // 如果有n个Tab，则把屏幕宽度分为n+1部分，Tab的标题的中线与每部分的分隔线重合
-    public static final int DISTRIBUTE_MODE_TAB_IN_SECTION_CENTER = 1;     // 如果有n个Tab，则把屏幕宽度分为n部分，Tab的标题在每部分居中
-    public static final int DISTRIBUTE_MODE_NONE                  = 0;     // 不对加入TabStrip的每个Tab的LayoutParams做任何处理
+    public static final int DISTRIBUTE_MODE_AVERAGE_SEGMENTATION  = TabLayoutEngine.DISTRIBUTE_MODE_AVERAGE_SEGMENTATION;  // 每个item的间隔相同
+    public static final int DISTRIBUTE_MODE_TAB_AS_DIVIDER        = TabLayoutEngine.DISTRIBUTE_MODE_TAB_AS_DIVIDER;        // 如果有n个Tab，则把屏幕宽度分为n+1部分，Tab的标题的中线与每部分的分隔线重合
+    public static final int DISTRIBUTE_MODE_TAB_IN_SECTION_CENTER = TabLayoutEngine.DISTRIBUTE_MODE_TAB_IN_SECTION_CENTER; // 如果有n个Tab，则把屏幕宽度分为n部分，Tab的标题在每部分居中
+    public static final int DISTRIBUTE_MODE_NONE                  = TabLayoutEngine.DISTRIBUTE_MODE_NONE;                  // 不对加入TabStrip的每个Tab的LayoutParams做任何处理
     public  int mDistributeMode = DISTRIBUTE_MODE_NONE;              // 默认不做处理
 
     private int mTitleOffset;                                        // title的偏移量
+    private int mScrollMode = SCROLL_MODE_LEFT;                      // 滑动时tab的对齐方式
+    private boolean mScrollToCurrentPending;                         // 布局完成之后是否需要滑动到当前的tab
+    private SavedState mPendingRestoreState;                         // 等待与adapter的title比较的恢复状态
+    private int mRestoredScrollX = -1;                               // 恢复的滚动位置, 第一次布局时直接使用
+    private int mRestoredPosition = -1;                              // 保存mRestoredScrollX时选中的position
     private int mTabViewTextViewId;                                  // 存储布局文件中的TextView的id
     private int mTabViewLayoutId;                                    // 存储layout文件的id
+    private int mPopulatedTabViewLayoutId;                           // 上一次填充时使用的layout文件的id
 
     private float mNormalTitleSize = 0;                              // 存储文字的大小
     private float mSelectedTitleSize = 0;                            // 存储文字被选中的大小
     private ColorStateList mTitleTextColor;                          // 存储显示文字的颜色
-
-    private ViewPager mViewPager;                                    // 关联ViewPager
+    private int mTitleNormalColor;                                   // mTitleTextColor中未选中的颜色
+    private int mTitleSelectedColor;                                 // mTitleTextColor中选中的颜色
+    private final ColorTransitions mTitleColorTransitions = new ColorTransitions(); // 滑动时title的颜色渐变表
+    private int mColorTransitionPosition = -1;                       // 上一次按照positionOffset插值颜色的position
+    // 渐变过程中每种颜色对应的ColorStateList, TextView.setTextColor(int)每次都会创建ColorStateList
+    // 两张渐变表最多2 * (STEPS + 1)种颜色, 预先分配好容量, 缓存满了之后滑动时不再创建对象
+    private final SparseArray<ColorStateList> mTitleColorStateLists = new SparseArray<>(2 * (ColorTransitions.STEPS + 1));
+    private int mTitleEmphasisMode = TITLE_EMPHASIS_MODE_SIZE;       // 选中title的强调方式
+    private int mEmphasisPosition = -1;                              // 上一次按照positionOffset插值缩放的position
+
+    private TabPagerBinding mPagerBinding;                           // 关联的翻页控件
     private ViewPager.OnPageChangeListener mViewPagerPageChangeListener; // 用来回调
 
     private SlidingTabStrip mTabStrip;                               // 子tab
@@ -85,6 +131,71 @@ public class SlidingTabLayout extends HorizontalScrollView {
     // 记录ContentDescriptions
     private SparseArray<String> mContentDescriptions = new SparseArray<>();
 
+    private TabClickListener mTabClickListener = new TabClickListener(); // 所有tab共用的点击事件
+    // 点击节流和选中合并, 每个SlidingTabLayout各自计算
+    private final SelectionThrottler mSelectionThrottler = new SelectionThrottler(this, new SelectionThrottler.Target() {
+        @Override
+        public void onSelect(int position) {
+            // 等待执行期间tab的数量可能发生了变化
+            if (mPagerBinding != null && position < mPagerBinding.getCount()) {
+                mPagerBinding.setCurrentItem(position);
+            }
+        }
+    });
+    private View mSelectedTabView;                                   // 当前被选中的tabView
+
+    private boolean mVirtualizationEnabled;                          // 是否开启虚拟化模式
+    private boolean mFlatTabsEnabled;                                // 是否开启平铺模式
+    private FlatTabTitles mFlatTitles;                               // 平铺模式下的title文本布局
+    private boolean mVirtualWindowUpdatePending;                     // 是否已经post了可见区域的更新
+    private TabViewPool mTabViewPool = new TabViewPool();            // tabView的回收池
+
+    private boolean mAsyncPopulateEnabled;                           // 是否在后台线程inflate自定义的tab布局
+    private boolean mHasPlaceholderTabs;                             // 当前是否显示的是占位view
+    private boolean mPreInflateFailed;                               // 后台inflate失败过, 之后都在主线程inflate
+    private int mPendingPreInflateCount;                             // 正在后台inflate的数量
+    private TabPreInflater mTabPreInflater;                          // 后台inflate自定义的tab布局
+
+    private long[] mTabIds;                                          // 上一次填充时每个tab的id, adapter实现了TabIdProvider时才有值
+    private CharSequence[] mTabTitles;                               // 上一次填充时每个tab的title
+    private InternalPageChangeListener mPageChangeListener = new InternalPageChangeListener();
+
+    private TabLayoutMetrics mMetrics;                               // 性能统计, 为null时不统计
+    private PagePrefetcher mPagePrefetcher;                          // 预加载页面, 由外部的adapter实现
+    private int mTabPrefetchDirection;                               // 虚拟化模式下预先绑定tab的方向, 0表示不预先绑定
+    // 根据滑动方向在空闲时预加载前方的页面和tab
+    private final PrefetchScheduler mPrefetchScheduler = new PrefetchScheduler(new PrefetchScheduler.Callback() {
+        @Override
+        public void onPrefetchTabs(int direction) {
+            mTabPrefetchDirection = direction;
+            updateVirtualTabWindow();
+        }
+
+        @Override
+        public void onPrefetchPage(int position) {
+            if (mPagePrefetcher != null) {
+                mPagePrefetcher.prefetchPage(position);
+            }
+        }
+
+        @Override
+        public void onPrefetchCancelled() {
+            // 已经绑定的tab在下一次更新可见区域时回收
+            mTabPrefetchDirection = 0;
+            if (mPagePrefetcher != null) {
+                mPagePrefetcher.cancelPrefetch();
+            }
+        }
+    });
+
+    // 滑动之后在下一帧更新虚拟化模式下绑定的tab
+    private final Runnable mVirtualWindowUpdater = new Runnable() {
+        @Override
+        public void run() {
+            updateVirtualTabWindow();
+        }
+    };
+
     public SlidingTabLayout(Context context) {
         this(context, null);
     }
@@ -108,6 +219,7 @@ public class SlidingTabLayout extends HorizontalScrollView {
         // 设定内容居中
         mTabStrip.setGravity(Gravity.CENTER_HORIZONTAL);
         addView(mTabStrip, ViewPager.LayoutParams.MATCH_PARENT, ViewPager.LayoutParams.MATCH_PARENT);
+        mTabStrip.setOnFlatTabClickListener(mTabClickListener);
 
         setTextChangeSize(DEFAULT_NORMAL_TEXT_SIZE, DEFAULT_SELECTED_TEXT_SIZE);
     }
@@ -134,6 +246,7 @@ public class SlidingTabLayout extends HorizontalScrollView {
         textView.setBackgroundResource(outValue.resourceId);
         // 设置全为大写
         textView.setAllCaps(true);
+        TitleWidthCache.setMeasurable(textView, true);
 
         // 为TextView设置padding
         int padding = (int) (TAB_VIEW_PADDING_DIP * getResources().getDisplayMetrics().density);
@@ -146,154 +259,794 @@ public class SlidingTabLayout extends HorizontalScrollView {
      * 完成填充方法, 加载自定义布局或者加载默认的布局
      */
     private void populateTabStrip() {
-        PagerAdapter adapter = mViewPager.getAdapter();
-        OnClickListener listener = new TabClickListener();
+        TabLayoutMetrics metrics = mMetrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+        populateTabStripInternal();
+        if (metrics != null) {
+            metrics.recordDuration(TabLayoutMetrics.METRIC_POPULATE, start);
+        }
+    }
 
-        // 存储所有item的width值总和来处理平均分配模式
-        int totalItemWidth = 0;
+    private void populateTabStripInternal() {
+        // 自定义布局更换了, 之前布局的tabView不会再被使用, 回收之后从回收池中丢弃
+        if (mPopulatedTabViewLayoutId != mTabViewLayoutId) {
+            clearTabStrip();
+            mTabViewPool.clear(mPopulatedTabViewLayoutId != 0 ? mPopulatedTabViewLayoutId : VIEW_TYPE_DEFAULT);
+            mPopulatedTabViewLayoutId = mTabViewLayoutId;
+        }
+
+        recordTabSnapshot();
+        // 恢复状态时还没有关联ViewPager, 现在title已经确定, 决定是否使用保存的几何信息
+        SavedState restoreState = takeMatchingRestoreState();
+        if (restoreState != null) {
+            applyRestoredState(restoreState);
+        }
+        // 所有title都会重新绑定, 缩放状态也随之重置
+        mEmphasisPosition = -1;
+        mColorTransitionPosition = -1;
+
+        if (useFlatTabs()) {
+            populateFlatTabStrip();
+            return;
+        }
+        if (mTabStrip.isFlat()) {
+            mFlatTitles.cancel();
+            mTabStrip.setFlatTitles(null);
+        }
 
-        for (int i = 0; i < adapter.getCount(); i++) {
+        // 虚拟化模式不支持DISTRIBUTE_MODE_TAB_AS_DIVIDER模式, 该模式依赖两端的padding view
+        boolean isVirtualized = mVirtualizationEnabled && !isTabAsDividerMode();
+        if (isVirtualized != mTabStrip.isVirtualized()) {
+            // 切换了模式, 已有的tab不能在原位置复用
+            clearTabStrip();
+            mTabStrip.setVirtualized(isVirtualized);
+        }
+        if (isVirtualized) {
+            populateVirtualTabStrip(restoreState != null ? restoreState.mTabWidths : null);
+            return;
+        }
+
+        // 下一个需要填充的子view的位置, 已经存在的同类型子view会被直接复用
+        int childIndex = 0;
+        // 自定义布局还在后台inflate的时候先使用占位view
+        int count = mPagerBinding.getCount();
+        boolean usePlaceholders = needPlaceholderTabs(count);
+        int tabViewType = usePlaceholders ? VIEW_TYPE_PLACEHOLDER : getTabViewType();
+
+        for (int i = 0; i < count; i++) {
             if (isTabAsDividerMode() && i == 0) {
                 // 添加了一个开始分割线
-                addPaddingViewForCenterMode();
+                obtainTabStripChild(childIndex++, VIEW_TYPE_PADDING);
             }
 
+            View tabView = obtainTabStripChild(childIndex++, tabViewType);
 
-            View tabView = null;
-            TextView tabTitleView = null;
+            // 设置title, 字体, 点击事件等
+            if (usePlaceholders) {
+                bindPlaceholderTabView((TextView) tabView, i);
+            } else {
+                bindTabView(tabView, i);
+            }
 
-            // 加载自定义布局
-            if (mTabViewLayoutId != 0) {
-                // 加载布局, 加载tab的title
-                tabView = LayoutInflater.from(getContext()).inflate(mTabViewLayoutId, mTabStrip, false);
-                tabTitleView = (TextView) tabView.findViewById(mTabViewTextViewId);
+            // 添加了一个结束分割线
+            if (isTabAsDividerMode() && i == count - 1) {
+                obtainTabStripChild(childIndex++, VIEW_TYPE_PADDING);
             }
+        } // end for
+
+        // 回收多余的子view, tab数量变少的时候
+        for (int i = mTabStrip.getChildCount() - 1; i >= childIndex; i--) {
+            View child = mTabStrip.getChildAt(i);
+            mTabStrip.removeViewAt(i);
+            recycleTabView(child);
+        }
+
+        // 每个tab的位置由SlidingTabStrip在测量时按照分配模式计算
+        mHasPlaceholderTabs = usePlaceholders;
+    }
+
+    /**
+     * 获取SlidingTabStrip中childIndex位置上viewType类型的子view
+     * 如果该位置上已经是同类型的子view就直接复用, 否则从回收池中获取或者新创建一个插入到该位置
+     */
+    private View obtainTabStripChild(int childIndex, int viewType) {
+        View child = mTabStrip.getChildAt(childIndex);
+        if (child != null && TabViewPool.getViewType(child) == viewType) {
+            return child;
+        }
 
-            // 加载默认布局
-            if (tabView == null) {
-                tabView = createDefaultTabView(getContext());
+        child = obtainTabView(viewType);
+        mTabStrip.addView(child, childIndex);
+        return child;
+    }
+
+    /**
+     * 获取一个viewType类型的tabView, 优先从回收池中获取, 没有的话就创建一个
+     */
+    private View obtainTabView(int viewType) {
+        View tabView = mTabViewPool.obtain(viewType);
+        if (tabView == null) {
+            if (viewType == VIEW_TYPE_PADDING) {
+                tabView = createPaddingViewForCenterMode();
+            } else if (viewType == VIEW_TYPE_PLACEHOLDER) {
+                tabView = createPlaceholderTabView();
+            } else {
+                tabView = createTabView();
             }
+        }
+        return tabView;
+    }
+
+    /**
+     * 当前填充的tabView的类型, 自定义布局使用布局id作为类型
+     */
+    private int getTabViewType() {
+        return mTabViewLayoutId != 0 ? mTabViewLayoutId : VIEW_TYPE_DEFAULT;
+    }
+
+    /**
+     * 创建一个tabView, 加载自定义布局或者加载默认的布局
+     */
+    private View createTabView() {
+        View tabView = null;
+        int viewType = VIEW_TYPE_DEFAULT;
+
+        // 加载自定义布局
+        if (mTabViewLayoutId != 0) {
+            tabView = LayoutInflater.from(getContext()).inflate(mTabViewLayoutId, mTabStrip, false);
+            viewType = mTabViewLayoutId;
+        }
+
+        // 加载默认布局
+        if (tabView == null) {
+            tabView = createDefaultTabView(getContext());
+            viewType = VIEW_TYPE_DEFAULT;
+        }
 
-            // 通过外部对tabView进行必要的处理
-            if (tabView != null && mCustomUiListener != null) {
-                mCustomUiListener.onCustomTitle(tabView, i);
+        TabViewPool.setViewType(tabView, viewType);
+        return tabView;
+    }
+
+    /**
+     * 获取tabView中显示title的TextView
+     */
+    private TextView getTabTitleView(View tabView) {
+        if (tabView == null) {
+            return null;
+        }
+
+        if (mTabViewLayoutId != 0) {
+            View titleView = tabView.findViewById(mTabViewTextViewId);
+            if (titleView instanceof TextView) {
+                return (TextView) titleView;
             }
+        }
+
+        // 如果加载的是默认布局, tabView本身就是title
+        if (tabView instanceof TextView) {
+            return (TextView) tabView;
+        }
+        return null;
+    }
+
+    /**
+     * 将position对应的数据绑定到tabView上, 复用的tabView会被重新设置所有状态
+     */
+    private void bindTabView(View tabView, int position) {
+        boolean isSelected = position == mPagerBinding.getCurrentItem();
+
+        // 通过外部对tabView进行必要的处理
+        if (mCustomUiListener != null) {
+            mCustomUiListener.onCustomTitle(tabView, position);
+        }
 
-            // 如果加载的是默认布局, 把值赋值给tabTitleView
-            if (tabTitleView == null && tabView instanceof TextView) {
-                tabTitleView = (TextView) tabView;
+        // 设置tabTitleView的字体大小和颜色
+        TextView tabTitleView = getTabTitleView(tabView);
+        if (tabTitleView != null) {
+            bindTabTitle(tabTitleView, mPagerBinding.getPageTitle(position), isSelected);
+        }
+
+        // 设置tabView的点击事件
+        tabView.setOnClickListener(mTabClickListener);
+
+        // 为tabView添加ContentDescription
+        tabView.setContentDescription(mContentDescriptions.get(position, null));
+
+        // 记录tabView对应的position, 用于点击时直接定位
+        setTabPosition(tabView, position);
+
+        // 设置联动, 如果ViewPager的当前position与tabView的position相同, 将该tabView设置成被选中状态
+        setTabSelected(tabView, isSelected);
+    }
+
+    /**
+     * 在tabView上记录它对应的ViewPager position, 点击时不需要再遍历查找
+     */
+    private static void setTabPosition(View tabView, int position) {
+        tabView.setTag(R.id.tab_position, position);
+    }
+
+    /**
+     * 获取tabView对应的ViewPager position, 分割模式下两端的padding view返回-1
+     */
+    private static int getTabPosition(View tabView) {
+        Object position = tabView.getTag(R.id.tab_position);
+        return position instanceof Integer ? (Integer) position : -1;
+    }
+
+    /**
+     * 设置tabView的选中状态, 并记录当前被选中的tabView, 切换页面时只需要改动两个view
+     */
+    private void setTabSelected(View tabView, boolean isSelected) {
+        tabView.setSelected(isSelected);
+        if (isSelected) {
+            mSelectedTabView = tabView;
+        } else if (mSelectedTabView == tabView) {
+            mSelectedTabView = null;
+        }
+    }
+
+    /**
+     * 回收已经移除的tabView, 被选中的tabView回收后不再记录, 由重新选中或者绑定的tabView代替
+     */
+    private void recycleTabView(View tabView) {
+        if (mSelectedTabView == tabView) {
+            mSelectedTabView = null;
+        }
+        mTabViewPool.recycle(tabView);
+    }
+
+    /**
+     * 设置title的文本, 字体大小和颜色
+     */
+    private void bindTabTitle(TextView tabTitleView, CharSequence title, boolean isSelected) {
+        bindTabTitleStyle(tabTitleView, isSelected);
+
+        if (mTitleTextColor != null) {
+            tabTitleView.setTextColor(mTitleTextColor);
+        }
+        // 为tabTitleView设置文本
+        tabTitleView.setText(title);
+    }
+
+    /**
+     * 设置title的字体大小和字体, 这些决定了title的宽度
+     */
+    private void bindTabTitleStyle(TextView tabTitleView, boolean isSelected) {
+        if (mTitleEmphasisMode == TITLE_EMPHASIS_MODE_SCALE) {
+            // 所有title都按照选中的大小布局, 之后切换选中状态只改变scale, 不再触发重新布局
+            if (mSelectedTitleSize > 0) {
+                tabTitleView.setTextSize(mSelectedTitleSize);
             }
+            tabTitleView.setTypeface(Typeface.defaultFromStyle(Typeface.NORMAL));
+            setTitleEmphasis(tabTitleView, isSelected);
+        } else if (isSelected) {
+            tabTitleView.setTextSize(mSelectedTitleSize);
+            tabTitleView.setTypeface(Typeface.defaultFromStyle(Typeface.BOLD));
+        } else {
+            tabTitleView.setTextSize(mNormalTitleSize);
+            tabTitleView.setTypeface(Typeface.defaultFromStyle(Typeface.NORMAL));
+        }
+        if (mTitleEmphasisMode != TITLE_EMPHASIS_MODE_SCALE) {
+            // 从缩放模式切换回来的view需要恢复
+            tabTitleView.getPaint().setFakeBoldText(false);
+            tabTitleView.setScaleX(1f);
+            tabTitleView.setScaleY(1f);
+        }
+    }
 
-            // 通过不同的分割模式来处理tabView
-            // 如果设置了分割模式则对每一个tabView就进行参数变化
-            // todo 感觉没啥用啊 待测试删除是否会显示有影响
-//            if (tabView != null && mDistributeMode > DISTRIBUTE_MODE_NONE) {
-//                LinearLayout.LayoutParams lp = (LinearLayout.LayoutParams) tabView.getLayoutParams();
-//                distributeTab(lp);
-//            }
+    /**
+     * 虚拟化模式下获取position对应tab的宽度, 不调用bindTabView(), 也不回调CustomUiListener.onCustomTitle(),
+     * 只有真正绑定到可见区域的tab才会回调
+     * 默认的tabView只测量文本(TitleWidthCache), 自定义布局设置title之后测量一次
+     * 绑定之后宽度如果发生了变化(例如onCustomTitle中修改了view), 由SlidingTabStrip在onMeasure中更新
+     */
+    private int measureVirtualTabWidth(View measureView, int position) {
+        TextView tabTitleView = getTabTitleView(measureView);
+        if (tabTitleView == null) {
+            return SlidingTabStrip.measureTabWidth(measureView);
+        }
+        CharSequence title = mPagerBinding.getPageTitle(position);
+        bindTabTitleStyle(tabTitleView, position == mPagerBinding.getCurrentItem());
+        int width = TitleWidthCache.getTabWidth(measureView, title);
+        if (width < 0) {
+            tabTitleView.setText(title);
+            width = SlidingTabStrip.measureTabWidth(measureView);
+        }
+        return width;
+    }
 
-            // 设置tabTitleView的字体大小和颜色
-            if (tabTitleView != null) {
-                if (i == mViewPager.getCurrentItem()) {
-                    tabTitleView.setTextSize(mSelectedTitleSize);
-                    tabTitleView.setTypeface(Typeface.defaultFromStyle(Typeface.BOLD));
-                } else {
-                    tabTitleView.setTextSize(mNormalTitleSize);
-                    tabTitleView.setTypeface(Typeface.defaultFromStyle(Typeface.NORMAL));
-                }
+    /**
+     * 虚拟化模式下的填充方法
+     * 通过measureVirtualTabWidth()得到每个tab的宽度, 保存到SlidingTabStrip中作为几何信息,
+     * 真正的tabView只为可见区域附近的tab创建和绑定
+     *
+     * @param savedWidths 从SavedState恢复的宽度, title没有变化时直接使用, 不再逐个测量
+     */
+    private void populateVirtualTabStrip(int[] savedWidths) {
+        int count = mPagerBinding.getCount();
+        int[] widths;
+
+        if (savedWidths != null && savedWidths.length == count) {
+            widths = savedWidths.clone();
+        } else {
+            widths = new int[count];
+            View measureView = obtainTabView(getTabViewType());
+            for (int i = 0; i < count; i++) {
+                widths[i] = measureVirtualTabWidth(measureView, i);
+            }
+            mTabViewPool.recycle(measureView);
+        }
 
-                if (mTitleTextColor != null) {
-                    tabTitleView.setTextColor(mTitleTextColor);
-                }
-                // 为tabTitleView设置文本
-                tabTitleView.setText(adapter.getPageTitle(i));
-                //Log.d(TAG, "populateTabStrip: title : " + adapter.getPageTitle(i));
+        // 回收超出新数量或者类型不同的tab, 剩下的已绑定tab在原位置重新绑定
+        SparseArray<View> boundTabs = mTabStrip.getVirtualTabs();
+        for (int i = boundTabs.size() - 1; i >= 0; i--) {
+            int position = boundTabs.keyAt(i);
+            if (position >= count || TabViewPool.getViewType(boundTabs.valueAt(i)) != getTabViewType()) {
+                recycleTabView(mTabStrip.detachVirtualTab(position));
             }
+        }
+        mTabStrip.setVirtualTabWidths(widths, count);
+        for (int i = 0; i < boundTabs.size(); i++) {
+            bindTabView(boundTabs.valueAt(i), boundTabs.keyAt(i));
+        }
 
-            if (tabView != null) {
-                // 设置tabView的点击事件
-                tabView.setOnClickListener(listener);
+        updateVirtualTabWindow();
+    }
 
-                // 为tabView添加ContentDescription
-                String desc = mContentDescriptions.get(i, null);
-                if (desc != null) {
-                    tabView.setContentDescription(desc);
-                }
+    /**
+     * 是否使用平铺模式, 只有默认的纯文本tab才能平铺, 自定义布局和DISTRIBUTE_MODE_TAB_AS_DIVIDER模式下不生效
+     */
+    private boolean useFlatTabs() {
+        return mFlatTabsEnabled && mTabViewLayoutId == 0 && !isTabAsDividerMode();
+    }
 
-                if (mDistributeMode == DISTRIBUTE_MODE_AVERAGE_SEGMENTATION) {
-                    tabView.measure(MeasureSpec.UNSPECIFIED, MeasureSpec.UNSPECIFIED);
-                    totalItemWidth = totalItemWidth + tabView.getMeasuredWidth();
+    /**
+     * 平铺模式下的填充方法, 不创建tabView
+     * title的文本布局在后台线程中计算, 完成之前SlidingTabStrip继续显示上一次的结果
+     */
+    private void populateFlatTabStrip() {
+        if (!mTabStrip.isFlat()) {
+            // 从普通模式或者虚拟化模式切换过来, 回收所有的tabView
+            clearTabStrip();
+            mTabStrip.setVirtualized(false);
+            if (mFlatTitles == null) {
+                mFlatTitles = new FlatTabTitles();
+            }
+            mTabStrip.setFlatTitles(mFlatTitles);
+        }
+        updateFlatTitleColors();
+
+        // 与默认tabView未选中时的样式保持一致
+        DisplayMetrics metrics = getResources().getDisplayMetrics();
+        TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        paint.density = metrics.density;
+        paint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, mNormalTitleSize, metrics));
+        paint.setTypeface(Typeface.defaultFromStyle(Typeface.NORMAL));
+        int padding = (int) (TAB_VIEW_PADDING_DIP * metrics.density);
+
+        mFlatTitles.prepare(mTabTitles, paint, true, padding, padding, new FlatTabTitles.Callback() {
+            @Override
+            public void onTitlesPrepared(FlatTabTitles titles) {
+                if (!mTabStrip.isFlat()) {
+                    return;
                 }
+                mTabStrip.setFlatTitles(titles);
+                // 布局完成之后滑动到当前的tab
+                mScrollToCurrentPending = true;
+            }
+        });
+    }
 
-                mTabStrip.addView(tabView);
-                // 设置联动, 如果ViewPager的当前position与tabView的position相同, 将该tabView设置成被选中状态
-                if (i == mViewPager.getCurrentItem()) {
-                    tabView.setSelected(true);
-                }
+    /**
+     * 平铺模式下title的颜色, 没有设置title颜色的时候使用主题的textColorPrimary
+     */
+    private void updateFlatTitleColors() {
+        ColorStateList colors = mTitleTextColor;
+        if (colors == null) {
+            TypedArray a = getContext().obtainStyledAttributes(new int[]{android.R.attr.textColorPrimary});
+            colors = a.getColorStateList(0);
+            a.recycle();
+        }
+        if (colors == null) {
+            mTabStrip.setFlatTitleColors(Color.BLACK, Color.BLACK);
+            return;
+        }
+        int normalColor = colors.getDefaultColor();
+        int selectedColor = colors.getColorForState(new int[]{android.R.attr.state_selected}, normalColor);
+        mTabStrip.setFlatTitleColors(normalColor, selectedColor);
+    }
+
+    /**
+     * 更新虚拟化模式下绑定的tab
+     * 回收可见区域(加上两侧VIRTUAL_EXTRA_TABS个tab)以外的tabView, 为可见区域内还没有view的tab绑定view
+     */
+    private void updateVirtualTabWindow() {
+        mVirtualWindowUpdatePending = false;
+        if (!mTabStrip.isVirtualized() || mPagerBinding == null) {
+            return;
+        }
+
+        int tabCount = mTabStrip.getTabCount();
+        if (tabCount == 0) {
+            return;
+        }
+
+        // 还没有布局的时候使用屏幕宽度作为可见区域
+        int viewportWidth = getWidth() > 0 ? getWidth() : DisplayUtils.getInstance(getContext()).getPhoneWidth();
+        int first = mTabStrip.findTabIndexAt(getScrollX()) - VIRTUAL_EXTRA_TABS;
+        int last = mTabStrip.findTabIndexAt(getScrollX() + viewportWidth) + VIRTUAL_EXTRA_TABS;
+        // 滑动方向的前方多绑定几个tab, 由PrefetchScheduler在空闲时触发
+        if (mTabPrefetchDirection > 0) {
+            last += VIRTUAL_PREFETCH_TABS;
+        } else if (mTabPrefetchDirection < 0) {
+            first -= VIRTUAL_PREFETCH_TABS;
+        }
+        first = Math.max(0, first);
+        last = Math.min(tabCount - 1, last);
+
+        // 回收可见区域以外的tabView
+        SparseArray<View> boundTabs = mTabStrip.getVirtualTabs();
+        for (int i = boundTabs.size() - 1; i >= 0; i--) {
+            int position = boundTabs.keyAt(i);
+            if (position < first || position > last) {
+                recycleTabView(mTabStrip.detachVirtualTab(position));
             }
+        }
 
-            // 添加了一个结束分割线
-            if (isTabAsDividerMode() && i == adapter.getCount() - 1) {
-                addPaddingViewForCenterMode();
+        // 为可见区域内还没有view的tab绑定view
+        for (int position = first; position <= last; position++) {
+            if (boundTabs.get(position) == null) {
+                View tabView = obtainTabView(getTabViewType());
+                bindTabView(tabView, position);
+                mTabStrip.attachVirtualTab(position, tabView);
             }
-        } // end for
+        }
+    }
+
+    /**
+     * 在下一帧更新虚拟化模式下绑定的tab, 避免在滑动的绘制过程中修改子view
+     */
+    private void scheduleVirtualTabWindowUpdate() {
+        if (mTabStrip.isVirtualized() && !mVirtualWindowUpdatePending) {
+            mVirtualWindowUpdatePending = true;
+            ViewCompat.postOnAnimation(this, mVirtualWindowUpdater);
+        }
+    }
 
-        if (mDistributeMode == DISTRIBUTE_MODE_AVERAGE_SEGMENTATION && adapter.getCount() > 1) {
-            int layoutWidth = DisplayUtils.getInstance(getContext()).getPhoneWidth();
+    /**
+     * 移除所有的tab, 移除的tabView会放入回收池
+     */
+    private void clearTabStrip() {
+        for (int i = 0; i < mTabStrip.getChildCount(); i++) {
+            mTabViewPool.recycle(mTabStrip.getChildAt(i));
+        }
+        mTabStrip.clearTabs();
+        mSelectedTabView = null;
+    }
 
-            if (getLayoutParams() instanceof RelativeLayout.LayoutParams) {
-                RelativeLayout.LayoutParams layoutParams = (RelativeLayout.LayoutParams) getLayoutParams();
-                layoutWidth = layoutWidth - layoutParams.leftMargin - layoutParams.rightMargin;
-            } else if (getLayoutParams() instanceof LinearLayout.LayoutParams) {
-                LinearLayout.LayoutParams layoutParams = (LinearLayout.LayoutParams) getLayoutParams();
-                layoutWidth = layoutWidth - layoutParams.leftMargin - layoutParams.rightMargin;
-            } else if (getLayoutParams() instanceof FrameLayout.LayoutParams) {
-                FrameLayout.LayoutParams layoutParams = (FrameLayout.LayoutParams) getLayoutParams();
-                layoutWidth = layoutWidth - layoutParams.leftMargin - layoutParams.rightMargin;
+    /**
+     * 记录当前每个tab的id和title, 用来在数据变化时计算出变化的tab
+     */
+    private void recordTabSnapshot() {
+        int count = mPagerBinding.getCount();
+        mTabTitles = new CharSequence[count];
+        for (int i = 0; i < count; i++) {
+            mTabTitles[i] = mPagerBinding.getPageTitle(i);
+        }
+
+        TabIdProvider idProvider = mPagerBinding.getTabIdProvider();
+        if (idProvider != null) {
+            mTabIds = new long[count];
+            for (int i = 0; i < count; i++) {
+                mTabIds[i] = idProvider.getTabId(i);
             }
+        } else {
+            mTabIds = null;
+        }
+    }
 
-            int average_segmentation = (layoutWidth - totalItemWidth) / (adapter.getCount() - 1);
+    /**
+     * adapter的数据发生了变化
+     * 如果adapter实现了TabIdProvider, 通过新旧id计算出插入, 删除和移动的tab, 只更新这些tab
+     * 否则在原位置重新绑定所有tab
+     */
+    private void applyAdapterChanges() {
+        if (mPagerBinding == null || !mPagerBinding.hasPages()) {
+            return;
+        }
+        TabIdProvider idProvider = mPagerBinding.getTabIdProvider();
+        long[] oldIds = mTabIds;
+        CharSequence[] oldTitles = mTabTitles;
+        int count = mPagerBinding.getCount();
+
+        // 模式发生了变化或者从无到有的情况都直接重新填充
+        boolean isVirtualized = mVirtualizationEnabled && !isTabAsDividerMode();
+        if (idProvider == null || oldIds == null || oldIds.length == 0 || count == 0
+                || isVirtualized != mTabStrip.isVirtualized() || mTabStrip.isFlat() || useFlatTabs()
+                || mHasPlaceholderTabs) {
+            populateTabStrip();
+            return;
+        }
 
-            for (int i = 0; i < mTabStrip.getChildCount(); i++) {
-                if (i > 0) {
-                    View child = mTabStrip.getChildAt(i);
-                    LinearLayout.LayoutParams layoutParams = (LinearLayout.LayoutParams) child.getLayoutParams();
-                    layoutParams.leftMargin = average_segmentation;
-                    child.setLayoutParams(layoutParams);
-                }
+        // 通过id计算出旧位置和新位置的对应关系, -1表示被删除或者新插入
+        HashMap<Long, Integer> oldPositions = new HashMap<>(oldIds.length * 2);
+        for (int i = 0; i < oldIds.length; i++) {
+            oldPositions.put(oldIds[i], i);
+        }
+        int[] oldToNew = new int[oldIds.length];
+        int[] newToOld = new int[count];
+        Arrays.fill(oldToNew, -1);
+        for (int i = 0; i < count; i++) {
+            // 使用remove保证重复的id只会匹配一次
+            Integer oldPosition = oldPositions.remove(idProvider.getTabId(i));
+            newToOld[i] = oldPosition != null ? oldPosition : -1;
+            if (oldPosition != null) {
+                oldToNew[oldPosition] = i;
             }
         }
+
+        recordTabSnapshot();
+        if (isVirtualized) {
+            applyVirtualTabChanges(oldToNew, newToOld, oldTitles);
+        } else {
+            applyTabChanges(oldToNew, newToOld, oldTitles);
+        }
+        mTabStrip.invalidate();
     }
 
     /**
-     * 设置TabView的OnClickListener
-     * 如果被点击了, 改变ViewPager的位置, 实现联动效果
+     * 按照新旧位置的对应关系更新SlidingTabStrip中的子view
+     * 没有变化的tab不会被重新绑定, 插入一个tab只会添加一个view
      */
-    private class TabClickListener implements OnClickListener {
-        @Override
-        public void onClick(View tabView) {
-            if (CommonUtils.getInstance().isFastDoubleClick()) {
-                return;
+    private void applyTabChanges(int[] oldToNew, int[] newToOld, CharSequence[] oldTitles) {
+        View[] oldViews = new View[oldToNew.length];
+        for (int i = 0; i < oldToNew.length; i++) {
+            oldViews[i] = mTabStrip.getChildAt(getTabStripChildIndex(i));
+        }
+
+        // 移除被删除的tab
+        for (int i = 0; i < oldToNew.length; i++) {
+            if (oldToNew[i] < 0) {
+                mTabStrip.removeView(oldViews[i]);
+                recycleTabView(oldViews[i]);
             }
-            for (int i = 0; i < mTabStrip.getChildCount(); i++) {
-                if (tabView == mTabStrip.getChildAt(i)) {
-                    mViewPager.setCurrentItem(getViewPagerPosition(i));
-                    return;
+        }
+
+        // 按照新的顺序摆放tab
+        for (int i = 0; i < newToOld.length; i++) {
+            int childIndex = getTabStripChildIndex(i);
+            int oldPosition = newToOld[i];
+            if (oldPosition < 0) {
+                View tabView = obtainTabView(getTabViewType());
+                bindTabView(tabView, i);
+                mTabStrip.addView(tabView, childIndex);
+                animateTabChange(tabView);
+                continue;
+            }
+
+            View tabView = oldViews[oldPosition];
+            if (mTabStrip.getChildAt(childIndex) != tabView) {
+                mTabStrip.removeView(tabView);
+                mTabStrip.addView(tabView, childIndex);
+                animateTabChange(tabView);
+            }
+            if (isTabChanged(tabView, i, oldTitles[oldPosition])) {
+                bindTabView(tabView, i);
+            } else {
+                setTabPosition(tabView, i);
+            }
+        }
+    }
+
+    /**
+     * 虚拟化模式下按照新旧位置的对应关系更新几何信息和已经绑定的tab
+     */
+    private void applyVirtualTabChanges(int[] oldToNew, int[] newToOld, CharSequence[] oldTitles) {
+        // 保留下来的tab沿用之前的宽度, 新插入的tab需要测量
+        int[] widths = new int[newToOld.length];
+        View measureView = null;
+        for (int i = 0; i < newToOld.length; i++) {
+            if (newToOld[i] >= 0) {
+                widths[i] = mTabStrip.getTabWidth(newToOld[i]);
+            } else {
+                if (measureView == null) {
+                    measureView = obtainTabView(getTabViewType());
                 }
+                widths[i] = measureVirtualTabWidth(measureView, i);
+            }
+        }
+        if (measureView != null) {
+            mTabViewPool.recycle(measureView);
+        }
+
+        // 回收被删除的tab, 其余已经绑定的tab换到新的位置上
+        SparseArray<View> boundTabs = mTabStrip.getVirtualTabs();
+        for (int i = boundTabs.size() - 1; i >= 0; i--) {
+            int position = boundTabs.keyAt(i);
+            if (oldToNew[position] < 0) {
+                recycleTabView(mTabStrip.detachVirtualTab(position));
+            }
+        }
+        mTabStrip.moveVirtualTabs(oldToNew);
+        mTabStrip.setVirtualTabWidths(widths, newToOld.length);
+
+        boundTabs = mTabStrip.getVirtualTabs();
+        for (int i = 0; i < boundTabs.size(); i++) {
+            int position = boundTabs.keyAt(i);
+            View tabView = boundTabs.valueAt(i);
+            if (isTabChanged(tabView, position, oldTitles[newToOld[position]])) {
+                bindTabView(tabView, position);
+            } else {
+                setTabPosition(tabView, position);
+            }
+        }
+
+        updateVirtualTabWindow();
+
+        // 新插入的tab如果在可见区域内, 显示渐显动画
+        for (int i = 0; i < boundTabs.size(); i++) {
+            if (newToOld[boundTabs.keyAt(i)] < 0) {
+                animateTabChange(boundTabs.valueAt(i));
             }
         }
     }
 
     /**
-     * 通过指示器的位置来获取ViewPager的位置
-     * 因为指示器有不同的模式, 所以要作处理
+     * 判断保留下来的tab是否需要重新绑定: title变了, 或者选中状态变了
      */
-    private int getViewPagerPosition(int tabStripIndex) {
-        // 如果指示器是DISTRIBUTE_MODE_TAB_AS_DIVIDER模式, TabView的position比ViewPager的position大1
-        if (isTabAsDividerMode()) {
-            tabStripIndex--;
+    private boolean isTabChanged(View tabView, int position, CharSequence oldTitle) {
+        boolean isSelected = position == mPagerBinding.getCurrentItem();
+        return tabView.isSelected() != isSelected || !TextUtils.equals(oldTitle, mTabTitles[position]);
+    }
+
+    /**
+     * 插入或者移动的tab显示一个简短的渐显动画
+     */
+    private void animateTabChange(View tabView) {
+        tabView.setAlpha(0f);
+        tabView.animate().alpha(1f).setDuration(TAB_CHANGE_ANIMATION_DURATION).start();
+    }
+
+    /**
+     * 创建一个占位view, 只显示title, 没有背景和自定义布局的开销
+     */
+    private TextView createPlaceholderTabView() {
+        TextView textView = new TextView(getContext());
+        textView.setGravity(Gravity.CENTER);
+        textView.setLayoutParams(new LinearLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        int padding = (int) (TAB_VIEW_PADDING_DIP * getResources().getDisplayMetrics().density);
+        textView.setPadding(padding, 0, padding, 0);
+        TabViewPool.setViewType(textView, VIEW_TYPE_PLACEHOLDER);
+        TitleWidthCache.setMeasurable(textView, false);
+        return textView;
+    }
+
+    /**
+     * 为占位view绑定数据, 占位view不是自定义布局, 所以不会回调CustomUiListener
+     */
+    private void bindPlaceholderTabView(TextView placeholder, int position) {
+        boolean isSelected = position == mPagerBinding.getCurrentItem();
+        bindTabTitle(placeholder, mPagerBinding.getPageTitle(position), isSelected);
+        placeholder.setOnClickListener(mTabClickListener);
+        placeholder.setContentDescription(mContentDescriptions.get(position, null));
+        setTabPosition(placeholder, position);
+        setTabSelected(placeholder, isSelected);
+    }
+
+    /**
+     * 判断这次填充是否需要使用占位view
+     * 可以复用的自定义tabView不够的时候在后台inflate缺少的部分, 正在inflate的时候使用占位view
+     */
+    private boolean needPlaceholderTabs(int count) {
+        if (!mAsyncPopulateEnabled || mTabViewLayoutId == 0 || mPreInflateFailed) {
+            return false;
+        }
+
+        int missingCount = count - countReusableTabViews();
+        if (missingCount <= 0) {
+            return false;
+        }
+        if (mPendingPreInflateCount == 0) {
+            preInflateTabViews(missingCount);
+        }
+        return true;
+    }
+
+    /**
+     * 已经存在和回收池中可以直接使用的自定义tabView的数量
+     */
+    private int countReusableTabViews() {
+        int viewType = getTabViewType();
+        int count = mTabViewPool.getScrapCount(viewType);
+        for (int i = 0; i < mTabStrip.getChildCount(); i++) {
+            if (TabViewPool.getViewType(mTabStrip.getChildAt(i)) == viewType) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 在后台线程中提前inflate count个自定义的tab布局, 完成之后放入回收池
+     * 可以在Activity启动的时候提前调用, 需要先调用setCustomTabView()
+     */
+    public void preInflateTabViews(int count) {
+        if (mTabViewLayoutId == 0 || count <= 0) {
+            return;
+        }
+        if (mTabPreInflater == null) {
+            mTabPreInflater = new TabPreInflater(getContext());
+        }
+
+        mPendingPreInflateCount += count;
+        mTabPreInflater.inflate(mTabViewLayoutId, mTabStrip, count, new TabPreInflater.Callback() {
+            @Override
+            public void onTabViewsInflated(int layoutId, int requestCount, List<View> views) {
+                mPendingPreInflateCount -= requestCount;
+                if (views.size() < requestCount) {
+                    mPreInflateFailed = true;
+                }
+
+                // inflate期间更换了自定义布局, 结果不再需要
+                for (int i = 0; i < views.size() && layoutId == mTabViewLayoutId; i++) {
+                    TabViewPool.setViewType(views.get(i), layoutId);
+                    mTabViewPool.put(views.get(i));
+                }
+
+                // 一次性把占位view替换成真正的tabView, 按position顺序绑定
+                if (mHasPlaceholderTabs && mPendingPreInflateCount == 0
+                        && mPagerBinding != null && mPagerBinding.hasPages()) {
+                    populateTabStrip();
+                }
+            }
+        });
+    }
+
+    /**
+     * 设置是否在后台线程inflate自定义的tab布局(setCustomTabView()), 需要在setViewPager()之前调用
+     * 开启之后setViewPager()先显示只有title的占位view, inflate完成之后在主线程一次性替换成真正的tabView
+     */
+    public void setAsyncPopulateEnabled(boolean enabled) {
+        mAsyncPopulateEnabled = enabled;
+    }
+
+    /**
+     * 设置是否开启虚拟化模式, 需要在setViewPager()之前调用
+     * 开启之后只为可见区域附近的tab创建view, 滑动时回收复用, 适用于tab数量很多的情况
+     * DISTRIBUTE_MODE_TAB_AS_DIVIDER模式下不生效
+     */
+    public void setTabVirtualizationEnabled(boolean enabled) {
+        mVirtualizationEnabled = enabled;
+    }
+
+    /**
+     * 设置平铺模式, 需要在setViewPager()之前调用
+     * 开启之后不为tab创建view, title直接绘制在SlidingTabStrip上, 文本布局在后台线程中计算
+     * 只对默认的纯文本tab生效, 设置了自定义布局或者DISTRIBUTE_MODE_TAB_AS_DIVIDER模式下不生效,
+     * 此时CustomUiListener和ContentDescription也不会生效
+     */
+    public void setFlatTabsEnabled(boolean enabled) {
+        mFlatTabsEnabled = enabled;
+    }
+
+    /**
+     * 设置TabView的OnClickListener
+     * 如果被点击了, 改变ViewPager的位置, 实现联动效果
+     */
+    private class TabClickListener implements OnClickListener, SlidingTabStrip.OnFlatTabClickListener {
+        @Override
+        public void onClick(View tabView) {
+            onFlatTabClick(getTabPosition(tabView));
+        }
+
+        @Override
+        public void onFlatTabClick(int position) {
+            if (position < 0 || !mSelectionThrottler.acceptClick()) {
+                return;
+            }
+            mSelectionThrottler.requestSelection(position);
         }
-        return tabStripIndex;
     }
 
     /**
@@ -304,13 +1057,14 @@ public class SlidingTabLayout extends HorizontalScrollView {
     }
 
     /**
-     * 添加一个view作为分割线吧
+     * 创建一个view作为分割线吧
      */
-    private void addPaddingViewForCenterMode() {
+    private View createPaddingViewForCenterMode() {
         View paddingView = new View(getContext());
-        LinearLayout.LayoutParams layoutParams = new LinearLayout.LayoutParams(0, ViewGroup.LayoutParams.MATCH_PARENT);
-        layoutParams.weight = 1;
-        mTabStrip.addView(paddingView, layoutParams);
+        // 宽度由SlidingTabStrip在测量时分配
+        paddingView.setLayoutParams(new LinearLayout.LayoutParams(0, ViewGroup.LayoutParams.MATCH_PARENT));
+        TabViewPool.setViewType(paddingView, VIEW_TYPE_PADDING);
+        return paddingView;
     }
 
     /**
@@ -321,19 +1075,76 @@ public class SlidingTabLayout extends HorizontalScrollView {
     }
 
     /**
-     * 以不同的tab的mode来处理tab
+     * PagerAdapter(或者RecyclerViewPagerBinding.TitleProvider)可以实现这个接口为每个tab提供稳定的id
+     * adapter数据变化的时候, SlidingTabLayout通过id计算出插入, 删除和移动的tab, 只更新变化的部分
+     * 没有实现该接口的adapter会在原位置重新绑定所有tab
+     */
+    public interface TabIdProvider {
+        long getTabId(int position);
+    }
+
+    /**
+     * 预加载页面的接口, 由adapter实现, 例如创建fragment, inflate布局和加载数据
+     * 滑动时SlidingTabLayout根据方向和速度在主线程空闲时调用prefetchPage(), 方向反转或者停止滑动时调用cancelPrefetch()
+     */
+    public interface PagePrefetcher {
+        void prefetchPage(int position);
+
+        void cancelPrefetch();
+    }
+
+    /**
+     * 开启性能统计, 传入null关闭
+     * 统计的内容见TabLayoutMetrics, 关闭时不会调用System.nanoTime()
      */
-    private void distributeTab(LinearLayout.LayoutParams lp) {
-        switch (mDistributeMode) {
-            case DISTRIBUTE_MODE_TAB_IN_SECTION_CENTER:
-                lp.weight = 0;
-                lp.height = 1;
-                break;
-            case DISTRIBUTE_MODE_TAB_AS_DIVIDER:
-                lp.weight = 0;
-                lp.height = 2;
-                break;
+    public void setMetrics(TabLayoutMetrics metrics) {
+        if (mMetrics != null) {
+            mMetrics.cancelDrag();
         }
+        mMetrics = metrics;
+        mTabStrip.setMetrics(metrics);
+    }
+
+    public TabLayoutMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * 选中position对应的页面
+     * 同一次消息处理中连续调用时只执行最后一次, 在下一次消息循环中执行, 被覆盖的次数见getCoalescedSelectionCount()
+     */
+    public void setCurrentItem(int position) {
+        if (position >= 0) {
+            mSelectionThrottler.requestSelection(position);
+        }
+    }
+
+    /**
+     * 设置点击tab的节流窗口, 距离上一次点击不足windowMs的点击会被丢弃, 0表示不节流, 默认500ms
+     */
+    public void setClickThrottleWindow(long windowMs) {
+        mSelectionThrottler.setClickWindow(windowMs);
+    }
+
+    /**
+     * 因为节流被丢弃的点击次数
+     */
+    public int getDroppedClickCount() {
+        return mSelectionThrottler.getDroppedClickCount();
+    }
+
+    /**
+     * 被后面的请求覆盖而没有执行的选中次数, 包括点击和setCurrentItem()
+     */
+    public int getCoalescedSelectionCount() {
+        return mSelectionThrottler.getCoalescedSelectionCount();
+    }
+
+    /**
+     * 设置预加载页面的接口
+     */
+    public void setPagePrefetcher(PagePrefetcher prefetcher) {
+        mPagePrefetcher = prefetcher;
     }
 
     /**
@@ -356,7 +1167,7 @@ public class SlidingTabLayout extends HorizontalScrollView {
      */
     public void setDistributeMode(int distributeMode) {
         mDistributeMode = distributeMode;
-        mTabStrip.setTabAsDividerMode(isTabAsDividerMode());
+        mTabStrip.setDistributeMode(distributeMode);
     }
 
     /**
@@ -364,6 +1175,16 @@ public class SlidingTabLayout extends HorizontalScrollView {
      */
     public void setSelectedTitleColor(ColorStateList list) {
         this.mTitleTextColor = list;
+        if (list != null) {
+            // 只在设置的时候解析一次, 滑动时直接查表
+            mTitleNormalColor = list.getDefaultColor();
+            mTitleSelectedColor = list.getColorForState(new int[]{android.R.attr.state_selected}, mTitleNormalColor);
+        }
+        mColorTransitionPosition = -1;
+        mTitleColorStateLists.clear();
+        if (mTabStrip.isFlat()) {
+            updateFlatTitleColors();
+        }
     }
 
     /*------------------------------------step 1 done-----------------------------------------*/
@@ -376,10 +1197,16 @@ public class SlidingTabLayout extends HorizontalScrollView {
      */
 
     /**
-     * 定义一个接口来返回对应position的颜色
+     * 定义一个接口来返回对应position的颜色, 方法定义在tabengine模块中, 这里保留原来的名字
+     */
+    public interface TabColorShader extends com.example.mytablayout.tab.engine.TabColorShader {
+    }
+
+    /**
+     * 定义一个接口来计算指示器在两个tab之间移动时的左右边界, 方法定义在tabengine模块中, 这里保留原来的名字
+     * 滑动时每一帧都会调用, 实现中不要创建对象, 开方和三角函数等曲线可以预先计算成表
      */
-    public interface TabColorShader {
-        int getIndicatorColor(int position);
+    public interface IndicatorMotion extends com.example.mytablayout.tab.engine.IndicatorMotion {
     }
 
     /**
@@ -442,7 +1269,14 @@ public class SlidingTabLayout extends HorizontalScrollView {
      * 设置指示器的动画模式
      */
     public void setIndicatorAnimationMode(int mode) {
-        mTabStrip.setIndicatorAnimationMode(mode);
+        mTabStrip.setIndicatorMotion(IndicatorMotions.forMode(mode));
+    }
+
+    /**
+     * 设置自定义的指示器移动轨迹
+     */
+    public void setIndicatorAnimationMode(IndicatorMotion motion) {
+        mTabStrip.setIndicatorMotion(motion != null ? motion : IndicatorMotions.LINEAR);
     }
 
     /*------------------------------------step 2 done-----------------------------------------*/
@@ -457,52 +1291,137 @@ public class SlidingTabLayout extends HorizontalScrollView {
      * 与ViewPager建立关联, 与setupWithViewPager()设置差不多
      */
     public void setViewPager(ViewPager viewPager) {
+        setPagerBinding(viewPager != null ? new ViewPagerBinding(viewPager) : null);
+    }
+
+    /**
+     * 与翻页控件建立关联, 例如ViewPagerBinding或者RecyclerViewPagerBinding
+     */
+    public void setPagerBinding(TabPagerBinding pagerBinding) {
         // 清空tab列表
-        mTabStrip.removeAllViews();
+        clearTabStrip();
+
+        // 取消对之前翻页控件和adapter的监听
+        if (mPagerBinding != null) {
+            mPageChangeListener.cancelPendingScroll();
+            mSelectionThrottler.cancelPendingSelection();
+            mPrefetchScheduler.reset();
+            if (mMetrics != null) {
+                mMetrics.cancelDrag();
+            }
+            mPagerBinding.detach();
+        }
+        mTabIds = null;
 
-        if (null != viewPager) {
-            mViewPager = viewPager;
-            viewPager.addOnPageChangeListener(new InternalViewPagerPageChangeListener());
+        mPagerBinding = pagerBinding;
+        if (null != pagerBinding) {
+            pagerBinding.attach(mPageChangeListener);
             // 进行填充
-            populateTabStrip();
+            if (pagerBinding.hasPages()) {
+                populateTabStrip();
+                mScrollToCurrentPending = true;
+            }
         }
     }
 
-    private class InternalViewPagerPageChangeListener implements ViewPager.OnPageChangeListener {
+    /**
+     * 把翻页控件的事件同步给指示器, title和HorizontalScrollView, 与具体的翻页控件无关
+     */
+    private class InternalPageChangeListener implements TabPagerBinding.Callback {
         private int mScrollState = 0; // 记录scroll的状态
         // 0:滑动结束->SCROLL_STATE_IDLE
         // 1:正在滑动->SCROLL_STATE_DRAGGING
         // 2:滑动完成（到达新页面）之后会变成0->SCROLL_STATE_SETTLING
 
+        // 一帧之内可能收到多次onPageScrolled, 只记录最新的position和offset, 在下一次vsync时统一处理
+        private int mPendingScrollPosition;
+        private float mPendingScrollOffset;
+        private boolean mScrollUpdatePending;
+        private PageScrollFrameCallback mScrollFrameCallback;
+
         @Override
         public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
-            //Log.d(TAG, "onPageScrolled: ");
             int tabStripChildCount = getTabStripTabCount();
             // 如果索引错误, 不进行处理
             if ((tabStripChildCount == 0) || (position < 0) || (position >= tabStripChildCount)) {
                 return;
             }
 
+            // 方向和速度需要每一次回调都参与计算, 不能等到合并之后
+            mPrefetchScheduler.onPageScrolled(position, positionOffset, tabStripChildCount,
+                    mPagerBinding.getOffscreenPageCount());
+            if (mMetrics != null) {
+                mMetrics.onPageScrolled();
+            }
+
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                mPendingScrollPosition = position;
+                mPendingScrollOffset = positionOffset;
+                if (!mScrollUpdatePending) {
+                    if (mScrollFrameCallback == null) {
+                        mScrollFrameCallback = new PageScrollFrameCallback();
+                    }
+                    Choreographer.getInstance().postFrameCallback(mScrollFrameCallback);
+                    mScrollUpdatePending = true;
+                }
+            } else {
+                // Choreographer在API 16才开放, 低版本直接同步处理
+                applyPageScroll(position, positionOffset);
+            }
+
+            if (mViewPagerPageChangeListener != null) {
+                mViewPagerPageChangeListener.onPageScrolled(position, positionOffset, positionOffsetPixels);
+            }
+
+        }
+
+        /**
+         * 把滑动同步给指示器, title和HorizontalScrollView
+         */
+        private void applyPageScroll(int position, float positionOffset) {
+            // 等待vsync期间tab的数量可能发生了变化, 重新检查一次
+            int tabStripChildCount = getTabStripTabCount();
+            if ((tabStripChildCount == 0) || (position < 0) || (position >= tabStripChildCount)) {
+                return;
+            }
+
             // 把滑动也通知指示器
             mTabStrip.onViewPagerPageChanged(position, positionOffset);
 
-            View selectedTitle = mTabStrip.getChildAt(getTabStripChildIndex(position));
-            int extraOffset = (selectedTitle != null) ? (int) (positionOffset * selectedTitle.getWidth()) : 0;
+            scrollToTab(position, positionOffset);
 
-            scrollToTab(position, extraOffset);
+            updateTitleScale(position, positionOffset);
 
-            if (mViewPagerPageChangeListener != null) {
-                mViewPagerPageChangeListener.onPageScrolled(position, positionOffset, positionOffsetPixels);
+            updateTitleColors(position, positionOffset);
+        }
+
+        /**
+         * 取消还没有处理的滑动更新
+         */
+        void cancelPendingScroll() {
+            if (mScrollUpdatePending) {
+                Choreographer.getInstance().removeFrameCallback(mScrollFrameCallback);
+                mScrollUpdatePending = false;
             }
+        }
 
+        @RequiresApi(Build.VERSION_CODES.JELLY_BEAN)
+        private class PageScrollFrameCallback implements Choreographer.FrameCallback {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                mScrollUpdatePending = false;
+                applyPageScroll(mPendingScrollPosition, mPendingScrollOffset);
+            }
         }
 
         @Override
         public void onPageSelected(int position) {
-            if (mScrollState == ViewPager.SCROLL_STATE_IDLE) {
-                // 通知指示器滑动结束
-                mTabStrip.onViewPagerPageChanged(position, 0f);
-                scrollToTab(position, 0);
+            // 选中之前还没有请求布局, 选中之后请求了, 说明这次选中导致了重新布局(例如TITLE_EMPHASIS_MODE_SIZE)
+            boolean layoutRequested = mMetrics != null && mTabStrip.isLayoutRequested();
+            if (mScrollState == TabPagerBinding.SCROLL_STATE_IDLE) {
+                // 通知指示器滑动结束, 选中的结果需要立即生效, 丢弃还没有处理的滑动更新
+                cancelPendingScroll();
+                applyPageScroll(position, 0f);
             }
 
             // 改变TextView文本
@@ -511,12 +1430,22 @@ public class SlidingTabLayout extends HorizontalScrollView {
 
             int tabStripPosition = getTabStripChildIndex(position);
 
-            // 改变指示器的状态
-            for (int i = 0; i < mTabStrip.getChildCount(); i++) {
-                mTabStrip.getChildAt(i).setSelected(tabStripPosition == i);
+            // 改变tab的选中状态, 只需要改动之前选中的和现在选中的两个view
+            // 虚拟化模式下选中的tab可能还没有view, 绑定的时候会设置选中状态
+            View selectedTab = mTabStrip.getTabView(tabStripPosition);
+            if (selectedTab != mSelectedTabView) {
+                if (mSelectedTabView != null) {
+                    mSelectedTabView.setSelected(false);
+                    mSelectedTabView = null;
+                }
+                if (selectedTab != null) {
+                    setTabSelected(selectedTab, true);
+                }
             }
 
-            Log.d(TAG, "onPageSelected: position = " + position + " tabStripPosition : "  + tabStripPosition);
+            if (mMetrics != null) {
+                mMetrics.onPageSelected(!layoutRequested && mTabStrip.isLayoutRequested());
+            }
 
             if (mViewPagerPageChangeListener != null) {
                 mViewPagerPageChangeListener.onPageSelected(position);
@@ -525,20 +1454,44 @@ public class SlidingTabLayout extends HorizontalScrollView {
 
         @Override
         public void onPageScrollStateChanged(int state) {
-            Log.d(TAG, "onPageScrollStateChanged: " + state);
             mScrollState = state;
+            if (state == TabPagerBinding.SCROLL_STATE_IDLE) {
+                mPrefetchScheduler.reset();
+            }
+            if (mMetrics != null) {
+                if (state == TabPagerBinding.SCROLL_STATE_DRAGGING) {
+                    mMetrics.onDragStarted();
+                } else if (state == TabPagerBinding.SCROLL_STATE_IDLE) {
+                    mMetrics.onScrollIdle();
+                }
+            }
 
             if (mViewPagerPageChangeListener != null) {
                 mViewPagerPageChangeListener.onPageScrollStateChanged(state);
             }
         }
+
+        @Override
+        public void onPagesChanged() {
+            applyAdapterChanges();
+        }
+
+        @Override
+        public void onPagesReplaced() {
+            mTabIds = null;
+            if (mPagerBinding.hasPages()) {
+                populateTabStrip();
+            } else {
+                clearTabStrip();
+            }
+        }
     }
 
     /**
      *  获取Tab的数量,
      */
     private int getTabStripTabCount() {
-        int childCount = mTabStrip.getChildCount(); // 获取Tab的数量
+        int childCount = mTabStrip.getTabCount(); // 获取Tab的数量
         if (isTabAsDividerMode()) {
             childCount -= 2;
         }
@@ -558,25 +1511,33 @@ public class SlidingTabLayout extends HorizontalScrollView {
     /**
      * 定义一个方法来滑动到指定position的tab
      */
-    private void scrollToTab(int viewPagerIndex, int positionOffset) {
+    private void scrollToTab(int viewPagerIndex, float positionOffset) {
         int tabStripChildCount = getTabStripTabCount();
         // 如果索引出错则不处理
         if (tabStripChildCount == 0 || viewPagerIndex < 0 || viewPagerIndex >= tabStripChildCount) {
             return;
         }
 
-        View selectedChild = mTabStrip.getChildAt(getTabStripChildIndex(viewPagerIndex));
-        if (selectedChild != null) {
-            int targetScrollX = selectedChild.getLeft() + positionOffset;
-            if (viewPagerIndex > 0 || positionOffset > 0) {
-                targetScrollX -= mTitleOffset;
-            }
+        // 使用SlidingTabStrip的几何信息表, 在当前tab和下一个tab之间按照positionOffset插值
+        // 虚拟化模式下目标tab可能还没有view
+        int selectedIndex = getTabStripChildIndex(viewPagerIndex);
+        int nextIndex = viewPagerIndex < tabStripChildCount - 1 ? selectedIndex + 1 : selectedIndex;
+
+        // 居左对齐时除了第一个tab, 都在左侧留出mTitleOffset
+        int leadingOffset = viewPagerIndex > 0 || positionOffset > 0 ? mTitleOffset : 0;
+        int targetScrollX = mTabStrip.getEngine().getScrollTarget(selectedIndex, nextIndex, positionOffset,
+                mScrollMode, getWidth(), leadingOffset);
 
-            scrollTo(targetScrollX, 0);
+        scrollTo(targetScrollX, 0);
+    }
 
-            //改为居中对齐，如果要换成原先的居左对齐方式的话把上面的注释去掉
-//            int targetScrollX = (selectedChild.getLeft() + selectedChild.getRight() - getWidth()) / 2 + positionOffset;
-//            scrollTo(targetScrollX, 0);
+    /**
+     * 设置滑动时tab的对齐方式 SCROLL_MODE_LEFT或者SCROLL_MODE_CENTER
+     */
+    public void setScrollMode(int scrollMode) {
+        mScrollMode = scrollMode;
+        if (mPagerBinding != null) {
+            scrollToTab(mPagerBinding.getCurrentItem(), 0f);
         }
     }
 
@@ -584,14 +1545,22 @@ public class SlidingTabLayout extends HorizontalScrollView {
      * 设置文本的变化
      */
     private void changeText() {
+        if (mTitleEmphasisMode == TITLE_EMPHASIS_MODE_SCALE) {
+            if (mCurrentPosition != mLastPosition) {
+                setTitleEmphasis(mCurrentPosition, true);
+                setTitleEmphasis(mLastPosition, false);
+            }
+            mLastPosition = mCurrentPosition;
+            return;
+        }
         if (mCurrentPosition != mLastPosition) {
-            TextView currentText = getTabTextView(getTabStripChildIndex(mCurrentPosition) + 1);
+            TextView currentText = getTabTextView(mCurrentPosition);
             if (currentText != null) {
                 currentText.setTextSize(TypedValue.COMPLEX_UNIT_SP, mSelectedTitleSize);
                 currentText.setTypeface(Typeface.defaultFromStyle(Typeface.BOLD));
             }
 
-            TextView lastText = getTabTextView(getTabStripChildIndex(mLastPosition) + 1);
+            TextView lastText = getTabTextView(mLastPosition);
             if (lastText != null) {
                 lastText.setTypeface(Typeface.defaultFromStyle(Typeface.NORMAL));
                 lastText.setTextSize(TypedValue.COMPLEX_UNIT_SP, mNormalTitleSize);
@@ -600,24 +1569,130 @@ public class SlidingTabLayout extends HorizontalScrollView {
         mLastPosition = mCurrentPosition;
     }
 
-    private TextView getTabTextView(int stripIndex) {
-        View tab = mTabStrip.getChildAt(getTabIndex(stripIndex));
-        if (tab instanceof TextView) {
-            return (TextView) tab;
+    /**
+     * 缩放模式下设置title的选中状态, 粗体使用fakeBold, 只需要重绘
+     */
+    private void setTitleEmphasis(int viewPagerIndex, boolean isSelected) {
+        TextView titleView = getTabTextView(viewPagerIndex);
+        if (viewPagerIndex == mEmphasisPosition || viewPagerIndex == mEmphasisPosition + 1) {
+            // 正在按照positionOffset插值的title只切换粗体, scale交给updateTitleScale, 避免跳变一帧
+            if (titleView != null) {
+                setTitleFakeBold(titleView, isSelected);
+            }
+            return;
         }
+        setTitleEmphasis(titleView, isSelected);
+    }
 
-        if (tab != null) {
-            return tab.findViewById(mTabViewTextViewId);
+    private void setTitleEmphasis(TextView titleView, boolean isSelected) {
+        if (titleView == null) {
+            return;
         }
-        return null;
+        setTitleFakeBold(titleView, isSelected);
+        float scale = isSelected ? 1f : getNormalTitleScale();
+        titleView.setScaleX(scale);
+        titleView.setScaleY(scale);
     }
 
+    private void setTitleFakeBold(TextView titleView, boolean fakeBold) {
+        if (titleView.getPaint().isFakeBoldText() != fakeBold) {
+            titleView.getPaint().setFakeBoldText(fakeBold);
+            titleView.invalidate();
+        }
+    }
 
-    private int getTabIndex(int stripIndex) {
-        if (isTabAsDividerMode()) {
-            stripIndex--;
+    /**
+     * 缩放模式下按照positionOffset插值, 当前title逐渐缩小, 下一个title逐渐放大
+     */
+    private void updateTitleScale(int position, float positionOffset) {
+        if (mTitleEmphasisMode != TITLE_EMPHASIS_MODE_SCALE) {
+            return;
+        }
+        float normalScale = getNormalTitleScale();
+        if (position != mEmphasisPosition) {
+            // 上一次插值的两个title可能已经不在拖动范围内, 先恢复成未选中的大小
+            if (mEmphasisPosition >= 0) {
+                setTitleScale(mEmphasisPosition, normalScale);
+                setTitleScale(mEmphasisPosition + 1, normalScale);
+            }
+            mEmphasisPosition = position;
         }
-        return stripIndex;
+        setTitleScale(position, normalScale + (1f - normalScale) * (1f - positionOffset));
+        setTitleScale(position + 1, normalScale + (1f - normalScale) * positionOffset);
+    }
+
+    /**
+     * 按照positionOffset插值title的颜色, 当前title逐渐变为未选中的颜色, 下一个title逐渐变为选中的颜色
+     * 停止滑动之后恢复成ColorStateList, 由选中状态决定颜色
+     */
+    void updateTitleColors(int position, float positionOffset) {
+        if (mTitleTextColor == null || mTabStrip.isFlat() || mTitleNormalColor == mTitleSelectedColor) {
+            return;
+        }
+        if (position != mColorTransitionPosition) {
+            // 上一次插值的两个title可能已经不在拖动范围内, 先恢复
+            if (mColorTransitionPosition >= 0) {
+                restoreTitleColor(mColorTransitionPosition);
+                restoreTitleColor(mColorTransitionPosition + 1);
+            }
+            mColorTransitionPosition = position;
+        }
+        if (positionOffset <= 0f) {
+            restoreTitleColor(position);
+            restoreTitleColor(position + 1);
+            mColorTransitionPosition = -1;
+            return;
+        }
+        setTitleColor(position, mTitleColorTransitions.blend(mTitleSelectedColor, mTitleNormalColor, positionOffset));
+        setTitleColor(position + 1, mTitleColorTransitions.blend(mTitleNormalColor, mTitleSelectedColor, positionOffset));
+    }
+
+    private void setTitleColor(int viewPagerIndex, int color) {
+        TextView titleView = getTabTextView(viewPagerIndex);
+        if (titleView == null) {
+            return;
+        }
+        ColorStateList colors = mTitleColorStateLists.get(color);
+        if (colors == null) {
+            colors = ColorStateList.valueOf(color);
+            mTitleColorStateLists.put(color, colors);
+        }
+        if (titleView.getTextColors() != colors) {
+            titleView.setTextColor(colors);
+        }
+    }
+
+    private void restoreTitleColor(int viewPagerIndex) {
+        TextView titleView = getTabTextView(viewPagerIndex);
+        if (titleView != null && titleView.getTextColors() != mTitleTextColor) {
+            titleView.setTextColor(mTitleTextColor);
+        }
+    }
+
+    private void setTitleScale(int viewPagerIndex, float scale) {
+        TextView titleView = getTabTextView(viewPagerIndex);
+        if (titleView != null) {
+            titleView.setScaleX(scale);
+            titleView.setScaleY(scale);
+        }
+    }
+
+    /**
+     * 未选中的title相对于选中title的缩放比例
+     */
+    private float getNormalTitleScale() {
+        if (mNormalTitleSize <= 0 || mSelectedTitleSize <= 0) {
+            return 1f;
+        }
+        return mNormalTitleSize / mSelectedTitleSize;
+    }
+
+    /**
+     * 获取ViewPager的position对应的title, 虚拟化模式下没有绑定view的tab返回null
+     */
+    private TextView getTabTextView(int viewPagerIndex) {
+        // 超出范围时getTabView()返回null
+        return getTabTitleView(mTabStrip.getTabView(getTabStripChildIndex(viewPagerIndex)));
     }
 
 
@@ -629,6 +1704,20 @@ public class SlidingTabLayout extends HorizontalScrollView {
         this.mNormalTitleSize = normalTextSize;
     }
 
+    /**
+     * 设置选中title的强调方式 TITLE_EMPHASIS_MODE_SIZE或者TITLE_EMPHASIS_MODE_SCALE
+     * 缩放模式下所有title按照选中的大小布局一次, 滑动时通过scale平滑放大缩小, 不会触发measure和layout
+     */
+    public void setTitleEmphasisMode(int mode) {
+        if (mTitleEmphasisMode == mode) {
+            return;
+        }
+        mTitleEmphasisMode = mode;
+        if (mPagerBinding != null && mPagerBinding.hasPages()) {
+            populateTabStrip();
+        }
+    }
+
     /**
      * 设置ViewPager.OnPageChangeListener来保证ViewPager会被通知状态改变
      */
@@ -643,10 +1732,16 @@ public class SlidingTabLayout extends HorizontalScrollView {
 
     /**
      * 重新绘制一次SlidingTabLayout
+     * 已经存在的tabView会在原位置重新绑定数据, 只有tab数量增加的时候才会创建新的tabView
+     * adapter的数据变化会被自动监听, 一般不需要手动调用
      */
     public void notifyDataChange() {
-        mTabStrip.removeAllViews();
+        TabLayoutMetrics metrics = mMetrics;
+        long start = metrics != null ? System.nanoTime() : 0;
         populateTabStrip();
+        if (metrics != null) {
+            metrics.recordDuration(TabLayoutMetrics.METRIC_NOTIFY_DATA_CHANGE, start);
+        }
     }
 
     /**
@@ -655,9 +1750,194 @@ public class SlidingTabLayout extends HorizontalScrollView {
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
-        if (mViewPager != null) {
-            scrollToTab(mViewPager.getCurrentItem(), 0);
+        if (mPagerBinding != null && mRestoredScrollX < 0) {
+            scrollToTab(mPagerBinding.getCurrentItem(), 0f);
         }
+        // 还没有布局的时候几何信息表是空的, 布局完成之后再滑动一次
+        mScrollToCurrentPending = true;
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mPageChangeListener.cancelPendingScroll();
+        mSelectionThrottler.cancelPendingSelection();
+        mPrefetchScheduler.reset();
+        if (mMetrics != null) {
+            mMetrics.cancelDrag();
+        }
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        TabLayoutMetrics metrics = mMetrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        if (metrics != null) {
+            metrics.recordDuration(TabLayoutMetrics.METRIC_MEASURE, start);
+        }
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        TabLayoutMetrics metrics = mMetrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+        layoutTabs(changed, l, t, r, b);
+        if (metrics != null) {
+            metrics.recordDuration(TabLayoutMetrics.METRIC_LAYOUT, start);
+        }
+    }
+
+    private void layoutTabs(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+        if (mScrollToCurrentPending && mPagerBinding != null && mTabStrip.getTabCount() > 0) {
+            mScrollToCurrentPending = false;
+            if (mRestoredScrollX >= 0 && mRestoredPosition == mPagerBinding.getCurrentItem()) {
+                // 几何信息与保存时一致, 直接回到保存时的滚动位置
+                scrollTo(mRestoredScrollX, 0);
+            } else {
+                scrollToTab(mPagerBinding.getCurrentItem(), 0f);
+            }
+        }
+        mRestoredScrollX = -1;
+        mRestoredPosition = -1;
+        // 布局完成之后宽度才是准确的, 更新一次虚拟化模式下绑定的tab
+        updateVirtualTabWindow();
+    }
+
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+        scheduleVirtualTabWindowUpdate();
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
+        state.mSelectedPosition = mPagerBinding != null ? mPagerBinding.getCurrentItem() : 0;
+        state.mScrollX = getScrollX();
+
+        // 只有几何信息表和title一致时才保存宽度, 例如还没有布局的时候不保存
+        int count = mTabTitles != null ? mTabTitles.length : 0;
+        if (count > 0 && getTabStripTabCount() == count) {
+            state.mTabWidths = new int[count];
+            state.mTitleHashes = new int[count];
+            for (int i = 0; i < count; i++) {
+                state.mTabWidths[i] = mTabStrip.getTabWidth(getTabStripChildIndex(i));
+                state.mTitleHashes[i] = hashTitle(mTabTitles[i]);
+            }
+        } else {
+            state.mTabWidths = new int[0];
+            state.mTitleHashes = new int[0];
+        }
+        return state;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+
+        mPendingRestoreState = savedState;
+        if (mPagerBinding != null && mPagerBinding.hasPages()) {
+            // 已经关联了ViewPager, tab已经填充过, 只需要恢复选中位置和滚动位置
+            SavedState restoreState = takeMatchingRestoreState();
+            if (restoreState != null) {
+                applyRestoredState(restoreState);
+            }
+        }
+    }
+
+    /**
+     * 取出等待恢复的状态, 只有当前title与保存时完全一致才返回, 否则丢弃
+     */
+    private SavedState takeMatchingRestoreState() {
+        SavedState state = mPendingRestoreState;
+        mPendingRestoreState = null;
+        if (state == null || mTabTitles == null || state.mTitleHashes.length != mTabTitles.length) {
+            return null;
+        }
+        for (int i = 0; i < mTabTitles.length; i++) {
+            if (state.mTitleHashes[i] != hashTitle(mTabTitles[i])) {
+                return null;
+            }
+        }
+        return state;
+    }
+
+    /**
+     * 第一次布局时直接使用保存的选中位置和滚动位置, 不用等到布局完成之后再跳过去
+     */
+    private void applyRestoredState(SavedState state) {
+        if (state.mSelectedPosition < 0 || state.mSelectedPosition >= state.mTitleHashes.length) {
+            return;
+        }
+        mRestoredScrollX = state.mScrollX;
+        mRestoredPosition = state.mSelectedPosition;
+        mScrollToCurrentPending = true;
+        mTabStrip.onViewPagerPageChanged(state.mSelectedPosition, 0f);
+    }
+
+    /**
+     * 与String.hashCode()的计算方式一致, 不需要把CharSequence转换成String
+     */
+    private static int hashTitle(CharSequence title) {
+        if (title == null) {
+            return 0;
+        }
+        int hash = 0;
+        for (int i = 0; i < title.length(); i++) {
+            hash = 31 * hash + title.charAt(i);
+        }
+        return hash;
+    }
+
+    /**
+     * 保存的状态, 全部使用基本类型的数组
+     */
+    static class SavedState extends BaseSavedState {
+        int mSelectedPosition;                                       // 选中的position
+        int mScrollX;                                                // 滚动位置
+        int[] mTabWidths;                                            // 每个tab的宽度
+        int[] mTitleHashes;                                          // 每个tab的title的hash, 用来判断title是否变化
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        SavedState(Parcel source) {
+            // BaseSavedState(Parcel, ClassLoader)需要api 24
+            super(source);
+            mSelectedPosition = source.readInt();
+            mScrollX = source.readInt();
+            mTabWidths = source.createIntArray();
+            mTitleHashes = source.createIntArray();
+        }
+
+        @Override
+        public void writeToParcel(Parcel dest, int flags) {
+            super.writeToParcel(dest, flags);
+            dest.writeInt(mSelectedPosition);
+            dest.writeInt(mScrollX);
+            dest.writeIntArray(mTabWidths);
+            dest.writeIntArray(mTitleHashes);
+        }
+
+        public static final Creator<SavedState> CREATOR = new Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel source) {
+                return new SavedState(source);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
     }
 
 
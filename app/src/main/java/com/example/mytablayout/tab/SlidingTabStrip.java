@@ -1,24 +1,31 @@
 package com.example.mytablayout.tab;
 
-import android.animation.ValueAnimator;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.drawable.Drawable;
-import android.graphics.drawable.GradientDrawable;
+import android.graphics.Rect;
+import android.graphics.RectF;
 import android.support.annotation.Nullable;
+import android.text.Layout;
 import android.util.AttributeSet;
 import android.util.DisplayMetrics;
-import android.util.Log;
+import android.util.SparseArray;
 import android.util.TypedValue;
+import android.view.Gravity;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
 import android.view.View;
-import android.view.animation.AccelerateInterpolator;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
 import android.widget.LinearLayout;
 
 import com.example.mytablayout.R;
+import com.example.mytablayout.tab.engine.IndicatorMotion;
+import com.example.mytablayout.tab.engine.IndicatorMotions;
+import com.example.mytablayout.tab.engine.TabLayoutEngine;
 
-import static android.content.ContentValues.TAG;
+import java.util.Arrays;
 
 
 /**
@@ -35,7 +42,13 @@ public class SlidingTabStrip extends LinearLayout {
     private final int DEFAULT_BOTTOM_BORDER_THICKNESS_DIP   = 0;            // 默认的底部边界厚度
     private final int DEFAULT_SELECTED_INDICATOR_COLOR      = 0xFF33B5E5;   // tab被选中的指示器默认颜色
     private final float SELECTED_INDICATOR_THICKNESS_DIP    = 2.66f;        // 默认指示器的厚度（4px->4像素）
-    private final int AVOID_DITHERING_THRESHOLD              = 4;            // 防止抖动的阈值
+
+    /*基线对齐时按照垂直方向的gravity分组, 与LinearLayout一致*/
+    private static final int BASELINE_GROUP_CENTER_VERTICAL = 0;
+    private static final int BASELINE_GROUP_TOP = 1;
+    private static final int BASELINE_GROUP_BOTTOM = 2;
+    private static final int BASELINE_GROUP_FILL = 3;
+    private static final int BASELINE_GROUP_COUNT = 4;
 
     private int mBottomBorderThickness;                                     // 底部边界的厚度
     private Paint mBottomBorderPaint;                                       // 绘制底部边界的画笔
@@ -44,24 +57,61 @@ public class SlidingTabStrip extends LinearLayout {
     private Paint mSelectedIndicatorPaint;                                  // 指示器画笔
 
     private int mDefaultBottomBorderColor;                                  // 默认底部边界颜色
-    private int mIndicatorAnimationMode = SlidingTabLayout.ANI_MODE_NORMAL; // 记录动画效果选择那个来实现
+    private final float[] mIndicatorEdges = new float[2];                   // 指示器的左右边界, 每一帧复用
     private int mSelectedPosition = 0;                                      // 记录被选择的子view的position, 默认是0 即第一个被选中
     private float mSelectionOffset;                                         // 记录被选中的偏移量 -1->0->1 就是你手指拖动, 往左还是往右
-    private int mIndicatorWidth;                                            // 记录指示器的宽度
     private float mIndicatorCornerRadius;                                   // 记录指示器的半径
 
     private SimpleTabColorShader mDefaultTabColorShader;                    // 默认的ColorShader
     private SlidingTabLayout.TabColorShader mCustomTabColorShader;          // 自定义的ColorShader
 
+    private int mDistributeMode = SlidingTabLayout.DISTRIBUTE_MODE_NONE;    // tab的分配模式, 在onMeasure中按照实际宽度分配
     private boolean mIsTabAsDividerMode;                                    // 判断tab是否是DISTRIBUTE_MODE_TAB_AS_DIVIDER分割模式
-    private float mLastRight;                                               // 记录最新的right的位置
+    private int[] mChildSlotLefts = new int[0];                             // onMeasure中计算出的每个子view(包含margin)的left, onLayout直接使用
+    private int[] mSlotWidths = new int[0];                                 // 参与分配的tab(包含margin)的宽度
+    private int[] mSlotLefts = new int[0];                                  // 分配之后每个tab的left
+    private int[] mSlotChildIndices = new int[0];                           // 参与分配的tab对应的子view下标
+    private final int[] mMaxAscent = new int[BASELINE_GROUP_COUNT];         // 基线对齐时每组tab基线以上的最大高度, -1表示没有
+    private final int[] mMaxDescent = new int[BASELINE_GROUP_COUNT];        // 基线对齐时每组tab基线以下的最大高度, -1表示没有
     private int mIndicatorTopMargin;                                        // 记录指示器top的margin值
     private int mIndicatorBottomMargin;                                     // 记录指示器bottom的margin值
-    private GradientDrawable mIndicatorDrawable;                            // 记录指示器的图片
+    private RectF mIndicatorRect = new RectF();                             // 指示器的区域, 每一帧复用, 避免在onDraw中创建对象
+    private final Rect mNextIndicatorBounds = new Rect();                   // 按当前状态计算出的指示器区域
+    private final Rect mDrawnIndicatorBounds = new Rect();                  // 上一次onDraw实际绘制的指示器区域
+    private final Rect mDirtyBounds = new Rect();                           // 需要重绘的区域, 新旧指示器区域的并集
+    private int mNextIndicatorColor;                                        // 按当前状态计算出的指示器颜色
+    private int mDrawnIndicatorColor;                                       // 上一次onDraw实际绘制的指示器颜色
+    private boolean mHasDrawnIndicator;                                     // 上一次onDraw是否绘制了指示器
 
     // 用来返回tab对应的指示器坐标给SlidingTabStrip
     private SlidingTabLayout.ITabNameBottomPositionGetter mTabNameBottomPositionGetter;
 
+    // tab的几何信息表, 指示器和颜色的计算, 每次onLayout之后重新计算几何信息, onDraw和滑动的时候直接读取
+    private final TabLayoutEngine mEngine = new TabLayoutEngine();
+
+    /*虚拟化模式: 只为可见区域附近的tab创建view, 其余tab只保存几何信息*/
+    private boolean mIsVirtualized;                                         // 是否处于虚拟化模式
+    private int mVirtualTabCount;                                           // 虚拟化模式下tab的总数量
+    private int[] mVirtualTabWidths = new int[0];                           // 虚拟化模式下每个tab的宽度
+    private int mVirtualTabGap;                                             // 虚拟化模式下tab之间的间隔(平均分配模式使用)
+    private int mVirtualContentWidth;                                       // 虚拟化模式下所有tab的总宽度
+    private int mVirtualContentOffset;                                      // 虚拟化模式下内容的起始偏移(居中显示)
+    private int mLastHeightMeasureSpec;                                     // 记录最近一次的heightMeasureSpec, 用来测量新加入的tab
+    private SparseArray<View> mVirtualTabs = new SparseArray<>();           // 虚拟化模式下已经绑定的tab, position->view
+
+    /*平铺模式: 不创建子view, title的文本布局直接绘制在onDraw中*/
+    private FlatTabTitles mFlatTitles;                                      // 平铺模式下的title, 为null时不是平铺模式
+    private int mFlatNormalColor;                                           // 平铺模式下未选中title的颜色
+    private int mFlatSelectedColor;                                         // 平铺模式下选中title的颜色
+    private final Rect mFlatClipBounds = new Rect();                        // 绘制时的裁剪区域, 只绘制区域内的title
+    private OnFlatTabClickListener mFlatTabClickListener;                   // 平铺模式下tab的点击事件
+    private final int mTouchSlop;                                           // 超过这个距离就不再当作点击
+    private float mFlatTouchDownX;
+    private float mFlatTouchDownY;
+    private int mFlatPressedTab = -1;                                       // 按下时所在的tab, 移动超过mTouchSlop之后为-1
+
+    private TabLayoutMetrics mMetrics;                                      // 性能统计, 为null时不统计
+
 
 
     public SlidingTabStrip(Context context) {
@@ -71,6 +121,7 @@ public class SlidingTabStrip extends LinearLayout {
     public SlidingTabStrip(Context context, @Nullable AttributeSet attrs) {
         super(context, attrs);
         setWillNotDraw(false); //因为是继承ViewGroup 默认是不会经过onDraw()方法的 如果想要调用重写的onDraw()方法需要调用该方法
+        mTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
 
         // 获取系统资源 此时import的是android.R;而不是xxx.xxx.xxx(包名).R
         // 当导入的是（包名.R）的时候,可以引用较少（我也不知道要怎么描述）的资源
@@ -114,7 +165,7 @@ public class SlidingTabStrip extends LinearLayout {
 
         // 将指示器厚度单位从dp->px
         mSelectedIndicatorThickness = (int) (SELECTED_INDICATOR_THICKNESS_DIP * density);
-        mSelectedIndicatorPaint = new Paint();
+        mSelectedIndicatorPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
 
         // 初始化TabColorShader
         mDefaultTabColorShader = new SimpleTabColorShader();
@@ -134,7 +185,7 @@ public class SlidingTabStrip extends LinearLayout {
     /**
      * 这个类主要就是用来返回给SlidingTabLayout对应position的color
      */
-    private class SimpleTabColorShader implements SlidingTabLayout.TabColorShader {
+    private static class SimpleTabColorShader implements SlidingTabLayout.TabColorShader {
         private int[] mIndicatorColors;
 
         @Override
@@ -156,77 +207,128 @@ public class SlidingTabStrip extends LinearLayout {
     @Override
     protected void onDraw(Canvas canvas) {
         //super.onDraw(canvas);
+        TabLayoutMetrics metrics = mMetrics;
+        long start = metrics != null ? System.nanoTime() : 0;
 
         int height = getHeight(); // 获取高度
-        int childCount = getChildCount(); // 获取子view的数量
-        SlidingTabLayout.TabColorShader tabColorShader = mDefaultTabColorShader != null ? mDefaultTabColorShader : mCustomTabColorShader;
-
-        if (childCount > 0) {
-            View selectedTitle = getChildAt(mSelectedPosition); // 获取被选中的view
-            if (null != selectedTitle) {
-                float left = selectedTitle.getLeft(); // 获取子view的left
-                float right = selectedTitle.getRight(); // 获取子view的right
-                float leftMargin = 0; // 设置leftMargin
-
-                //
-                if (mIndicatorAnimationMode == SlidingTabLayout.ANI_MODE_TAIL && mIndicatorWidth > 0) {
-                    leftMargin = (right - left - mIndicatorWidth) / 2.0f;
-                }
-
-                // 得到当前tab的指示器颜色
-                int color = tabColorShader.getIndicatorColor(getTabIndex(mSelectedPosition));
-
-                // 如果现在处于滑动状态, 获取即将进入的tab的指示器的颜色
-                // 往右边滑动
-                if (mSelectionOffset > 0 && mSelectedPosition < (getChildCount() - 1)) {
-                    int nextColor = tabColorShader.getIndicatorColor(getTabIndex(mSelectedPosition + 1));
-                    if (color != nextColor) {
-                        color = blendColors(nextColor, color, mSelectionOffset);
-                    }
+        if (mFlatTitles != null) {
+            drawFlatTitles(canvas);
+        }
+        if (computeIndicatorBounds(mNextIndicatorBounds)) {
+            drawRoundRect(mNextIndicatorBounds.left, mNextIndicatorBounds.top,
+                    mNextIndicatorBounds.right, mNextIndicatorBounds.bottom, mNextIndicatorColor, canvas);
+            mDrawnIndicatorBounds.set(mNextIndicatorBounds);
+            mDrawnIndicatorColor = mNextIndicatorColor;
+            mHasDrawnIndicator = true;
+        } else {
+            mHasDrawnIndicator = false;
+        }
 
-                    // 获取即将进入的tab的View
-                    View nextTitle = getChildAt(mSelectedPosition + 1);
-
-                    // 处理动画效果
-                    switch (mIndicatorAnimationMode) {
-
-                        case SlidingTabLayout.ANI_MODE_NORMAL:  // 无特殊动画, 直接平移
-                            left = (int) (mSelectionOffset * nextTitle.getLeft() + (1.0f - mSelectionOffset) * left);
-                            right = (int) (mSelectionOffset * nextTitle.getRight() + (1.0f - mSelectionOffset) * right);
-                            break;
-                        case SlidingTabLayout.ANI_MODE_TAIL:    // 带动画效果 todo 测试一下什么效果, 我感觉是先拉伸然后逐渐变小
-                            int moveDimen = (nextTitle.getWidth() + selectedTitle.getWidth()) / 2;
-                            left += Math.pow(mSelectionOffset, 2) * moveDimen;
-                            right += Math.sqrt(mSelectionOffset) * moveDimen;
-                            break;
-                        default:
-                    }
+        // 只在底部边框位于本次重绘区域内时才绘制
+        if (mBottomBorderThickness > 0
+                && !canvas.quickReject(0, height - mBottomBorderThickness, getWidth(), height, Canvas.EdgeType.BW)) {
+            canvas.drawRect(0, height - mBottomBorderThickness, getWidth(), height, mBottomBorderPaint);
+        }
 
-                    mLastRight = right;
-                }
+        if (metrics != null) {
+            metrics.recordDuration(TabLayoutMetrics.METRIC_DRAW, start);
+        }
+    }
 
-                if (mIndicatorAnimationMode == SlidingTabLayout.ANI_MODE_NORMAL && mIndicatorWidth > 0) {
-                    leftMargin = (right - left - mIndicatorWidth) / 2.0f;
-                }
+    /**
+     * 设置性能统计, 由SlidingTabLayout.setMetrics()调用
+     */
+    void setMetrics(TabLayoutMetrics metrics) {
+        mMetrics = metrics;
+    }
 
-                //设置被选中指示器的画笔颜色
-                mSelectedIndicatorPaint.setColor(color);
+    /**
+     * 计算当前指示器的区域和颜色, 结果写入outBounds和mNextIndicatorColor
+     * onDraw和onViewPagerPageChanged共用这一份计算, 保证重绘区域和实际绘制一致
+     *
+     * @return 当前是否需要绘制指示器
+     */
+    private boolean computeIndicatorBounds(Rect outBounds) {
+        int height = getHeight(); // 获取高度
+        int childCount = getTabCount(); // 获取tab的数量, 虚拟化模式下不等于子view的数量
+        if (childCount <= 0 || mSelectedPosition >= childCount) {
+            return false;
+        }
+        SlidingTabLayout.TabColorShader tabColorShader = mCustomTabColorShader != null ? mCustomTabColorShader : mDefaultTabColorShader;
+
+        // 按照移动轨迹计算左右边界, 滑动时颜色在当前tab和即将进入的tab之间渐变
+        boolean moving = mEngine.computeIndicatorEdges(mSelectedPosition, mSelectionOffset, mIndicatorEdges);
+        float left = mIndicatorEdges[0];
+        float right = mIndicatorEdges[1];
+        int color = mEngine.getIndicatorColor(tabColorShader, getTabIndex(mSelectedPosition),
+                moving ? getTabIndex(mSelectedPosition + 1) : -1, mSelectionOffset);
+
+        // 虚拟化模式下被选中的tab可能还没有view, 此时退化为按底部绘制
+        View selectedTitle = getTabView(mSelectedPosition);
+        if (mIndicatorTopMargin > 0 && selectedTitle != null) {
+            //画圆角矩形
+            int tabTitleBottom = mTabNameBottomPositionGetter.getTabNameBottomPosition(selectedTitle);
+            outBounds.set((int) left, tabTitleBottom + mIndicatorTopMargin,
+                    (int) right, (int) (tabTitleBottom + mIndicatorTopMargin + mSelectedIndicatorThickness));
+        } else {
+            outBounds.set((int) left, (int) (height - mIndicatorBottomMargin - mSelectedIndicatorThickness),
+                    (int) right, height - mIndicatorBottomMargin);
+        }
+        mNextIndicatorColor = color;
+        return true;
+    }
 
-                if (mIndicatorTopMargin > 0) {
-                    //画圆角矩形
-                    int tabTitleBottom = mTabNameBottomPositionGetter.getTabNameBottomPosition(selectedTitle);
-                    drawRoundRect((int) (left + leftMargin), tabTitleBottom + mIndicatorTopMargin,
-                            (int) (right - leftMargin), (int) (tabTitleBottom + mIndicatorTopMargin + mSelectedIndicatorThickness),
-                            color, canvas);
+    /**
+     * 只重绘指示器上一帧和这一帧区域的并集, 位置和颜色都没变时不重绘
+     */
+    private void invalidateIndicator() {
+        if (!mHasDrawnIndicator) {
+            invalidate();
+            return;
+        }
+        if (!computeIndicatorBounds(mNextIndicatorBounds)) {
+            invalidate(mDrawnIndicatorBounds.left - 1, mDrawnIndicatorBounds.top - 1,
+                    mDrawnIndicatorBounds.right + 1, mDrawnIndicatorBounds.bottom + 1);
+            return;
+        }
+        if (mNextIndicatorBounds.equals(mDrawnIndicatorBounds) && mNextIndicatorColor == mDrawnIndicatorColor) {
+            return;
+        }
+        mDirtyBounds.set(mDrawnIndicatorBounds);
+        mDirtyBounds.union(mNextIndicatorBounds);
+        // 圆角矩形开启了抗锯齿, 边缘会多出半个像素
+        invalidate(mDirtyBounds.left - 1, mDirtyBounds.top - 1, mDirtyBounds.right + 1, mDirtyBounds.bottom + 1);
+    }
 
-                } else {
-                    drawRoundRect((int) (left + leftMargin), (int) (height - mIndicatorBottomMargin - mSelectedIndicatorThickness),
-                            (int) (right - leftMargin), height - mIndicatorBottomMargin,
-                            color, canvas);
-                }
-            } // end if
+    /**
+     * 平铺模式下绘制title, 只绘制裁剪区域内的部分
+     */
+    private void drawFlatTitles(Canvas canvas) {
+        int count = mEngine.getTabCount();
+        if (count == 0 || mFlatTitles.getCount() < count) {
+            return;
+        }
+        canvas.getClipBounds(mFlatClipBounds);
+        int first = findTabIndexAt(mFlatClipBounds.left);
+        int last = findTabIndexAt(mFlatClipBounds.right);
+        int paddingTop = getPaddingTop();
+        int contentHeight = getHeight() - paddingTop - getPaddingBottom();
+        int horizontalPadding = mFlatTitles.getHorizontalPadding();
+        for (int i = first; i <= last; i++) {
+            Layout layout = mFlatTitles.getLayout(i);
+            mFlatTitles.setColor(getFlatTitleColor(i));
+            int saveCount = canvas.save();
+            canvas.translate(mEngine.getTabLeft(i) + horizontalPadding, paddingTop + (contentHeight - layout.getHeight()) / 2);
+            layout.draw(canvas);
+            canvas.restoreToCount(saveCount);
         }
-        canvas.drawRect(0, height - mBottomBorderThickness, getWidth(), height, mBottomBorderPaint);
+    }
+
+    /**
+     * 平铺模式下title的颜色, 滑动的时候当前tab和下一个tab之间按照offset渐变
+     */
+    private int getFlatTitleColor(int index) {
+        return mEngine.getTitleColor(index, mSelectedPosition, mSelectionOffset, mFlatNormalColor, mFlatSelectedColor);
     }
 
     /**
@@ -239,29 +341,17 @@ public class SlidingTabStrip extends LinearLayout {
         return childIndex;
     }
 
-    /**
-     * 按照比例(ratio)融合2个颜色
-     * 1.0 return color1    0.5 平均融合2颜色   0 return color2
-     */
-    private int blendColors(int color1, int color2, float ratio) {
-        float inverseRatio = 1.0f - ratio;
-        float r = (Color.red(color1) * ratio) + (Color.red(color2) * inverseRatio);
-        float g = (Color.green(color1) * ratio) + (Color.green(color2) * inverseRatio);
-        float b = (Color.blue(color1) * ratio) + (Color.blue(color2) * inverseRatio);
-        return Color.rgb((int)r, (int)g, (int)b);
-    }
-
     /**
      * 定义一个方法来绘制圆角矩形
+     * 滑动时每一帧都会调用, 直接用画笔绘制, 不再修改GradientDrawable
+     * (GradientDrawable.setColor()每次都会创建ColorStateList, setCornerRadius()会重建path)
      */
     private void drawRoundRect(int left, int top, int right, int bottom, int color, Canvas canvas) {
-        if (mIndicatorDrawable == null) {
-            mIndicatorDrawable = (GradientDrawable) getResources().getDrawable(R.drawable.tab_strip_drawable);
+        if (mSelectedIndicatorPaint.getColor() != color) {
+            mSelectedIndicatorPaint.setColor(color);
         }
-        mIndicatorDrawable.setBounds(left, top, right, bottom);
-        mIndicatorDrawable.setColor(color);
-        mIndicatorDrawable.setCornerRadius(mIndicatorCornerRadius);
-        mIndicatorDrawable.draw(canvas);
+        mIndicatorRect.set(left, top, right, bottom);
+        canvas.drawRoundRect(mIndicatorRect, mIndicatorCornerRadius, mIndicatorCornerRadius, mSelectedIndicatorPaint);
     }
 
 
@@ -294,7 +384,7 @@ public class SlidingTabStrip extends LinearLayout {
      * 设置IndicatorWidth
      */
     public void setIndicatorWidth(int indicatorWidth) {
-        mIndicatorWidth = indicatorWidth;
+        mEngine.setIndicatorWidth(indicatorWidth);
         invalidate();
     }
 
@@ -310,20 +400,118 @@ public class SlidingTabStrip extends LinearLayout {
      */
     public void setIndicatorCornerRadius(float indicatorCornerRadius) {
         this.mIndicatorCornerRadius = indicatorCornerRadius;
+        invalidate();
     }
 
     /**
-     * 设置TabAsDividerMode
+     * 设置tab的分配模式, 宽度变化的时候会在onMeasure中重新分配, 不需要重新填充tab
      */
-    public void setTabAsDividerMode(boolean isTabAsDividerMode) {
-        mIsTabAsDividerMode = isTabAsDividerMode;
+    public void setDistributeMode(int distributeMode) {
+        if (mDistributeMode != distributeMode) {
+            mDistributeMode = distributeMode;
+            mIsTabAsDividerMode = distributeMode == SlidingTabLayout.DISTRIBUTE_MODE_TAB_AS_DIVIDER;
+            requestLayout();
+        }
+    }
+
+    /**
+     * 平铺模式下tab的点击事件
+     */
+    interface OnFlatTabClickListener {
+        void onFlatTabClick(int position);
     }
 
     /**
-     * 设置IndicatorAnimationMode
+     * 设置平铺模式的title, 传入null退出平铺模式, 进入平铺模式之前需要先移除所有的子view
      */
+    void setFlatTitles(FlatTabTitles titles) {
+        mFlatTitles = titles;
+        mFlatPressedTab = -1;
+        requestLayout();
+        invalidate();
+    }
+
+    boolean isFlat() {
+        return mFlatTitles != null;
+    }
+
+    /**
+     * 设置平铺模式下title的颜色
+     */
+    void setFlatTitleColors(int normalColor, int selectedColor) {
+        mFlatNormalColor = normalColor;
+        mFlatSelectedColor = selectedColor;
+        invalidate();
+    }
+
+    void setOnFlatTabClickListener(OnFlatTabClickListener listener) {
+        mFlatTabClickListener = listener;
+    }
+
+    /**
+     * 平铺模式下自己处理点击, 按下和抬起在同一个tab上并且没有移动超过mTouchSlop才算点击
+     * 横向滑动会被HorizontalScrollView拦截, 此时收到ACTION_CANCEL
+     */
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (mFlatTitles == null) {
+            return super.onTouchEvent(event);
+        }
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                mFlatTouchDownX = event.getX();
+                mFlatTouchDownY = event.getY();
+                mFlatPressedTab = findFlatTabAt(event.getX());
+                return mFlatPressedTab >= 0;
+            case MotionEvent.ACTION_MOVE:
+                if (Math.abs(event.getX() - mFlatTouchDownX) > mTouchSlop
+                        || Math.abs(event.getY() - mFlatTouchDownY) > mTouchSlop) {
+                    mFlatPressedTab = -1;
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+                if (mFlatPressedTab >= 0 && findFlatTabAt(event.getX()) == mFlatPressedTab
+                        && mFlatTabClickListener != null) {
+                    playSoundEffect(SoundEffectConstants.CLICK);
+                    mFlatTabClickListener.onFlatTabClick(mFlatPressedTab);
+                }
+                mFlatPressedTab = -1;
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                mFlatPressedTab = -1;
+                break;
+            default:
+        }
+        return true;
+    }
+
+    /**
+     * 平铺模式下查找横坐标所在的tab, 不在任何tab上(例如分配模式下tab之间的间隔)返回-1
+     */
+    private int findFlatTabAt(float x) {
+        if (mEngine.getTabCount() == 0) {
+            return -1;
+        }
+        int index = mEngine.findTabIndexAt((int) x);
+        return x >= mEngine.getTabLeft(index) && x < mEngine.getTabRight(index) ? index : -1;
+    }
+
+    /**
+     * 设置指示器的动画模式, 使用模式对应的内置轨迹
+     *
+     * @deprecated 使用{@link #setIndicatorMotion}和{@link IndicatorMotions#forMode(int)}
+     */
+    @Deprecated
     public void setIndicatorAnimationMode(int mode) {
-        this.mIndicatorAnimationMode = mode;
+        setIndicatorMotion(IndicatorMotions.forMode(mode));
+    }
+
+    /**
+     * 设置指示器的移动轨迹
+     */
+    public void setIndicatorMotion(IndicatorMotion motion) {
+        mEngine.setIndicatorMotion(motion);
+        invalidate();
     }
 
     /**
@@ -331,6 +519,7 @@ public class SlidingTabStrip extends LinearLayout {
      */
     public void setCustomTabColorShader(SlidingTabLayout.TabColorShader customTabColorShader) {
         this.mCustomTabColorShader = customTabColorShader;
+        mEngine.clearColorCache();
         invalidate();
     }
 
@@ -340,6 +529,7 @@ public class SlidingTabStrip extends LinearLayout {
     public void setSelectedIndicatorColors(int... colors) {
         mCustomTabColorShader = null;
         mDefaultTabColorShader.setIndicatorColors(colors);
+        mEngine.clearColorCache();
         invalidate();
     }
 
@@ -350,47 +540,15 @@ public class SlidingTabStrip extends LinearLayout {
     /**
      * 最后定义一个方法来监听绑定的ViewPager的页面是否发生了变化
      */
-    public void onViewPagerPageChanged(final int position, float positionOffset) {
-
-        //Log.d(TAG, "onViewPagerPageChanged: offset = " + positionOffset);
+    public void onViewPagerPageChanged(int position, float positionOffset) {
         mSelectedPosition = getChildIndex(position);
-
-        float right = -1;
-        // 获取选中View的right
-        if (getChildCount() > 0) {
-            View view = getChildAt(mSelectedPosition);
-            if (null != view) {
-                right = view.getRight();
-            }
-        }
-
-//        if (positionOffset == 0) { //防止一下抖动
-//            if (mSelectionOffset > 0 && right != -1 && Math.abs(mLastRight - right) >= AVOID_DITHERING_THRESHOLD) {
-//                //Log.d(TAG, "onAnimationUpdate: 触发的offset = " + mSelectionOffset + " final right : " + right + " now right : " + mLastRight);
-//                final boolean goLeft = mLastRight > right;
-//                ValueAnimator animator = ValueAnimator.ofFloat(1, 0);
-//                animator.setDuration(5000);
-//                final float finalRight = right;
-//                animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-//                    @Override
-//                    public void onAnimationUpdate(ValueAnimator animation) {
-//                        float currentValue = (float) animation.getAnimatedValue();
-//                        if (goLeft) {
-//                            mSelectionOffset = mSelectionOffset * currentValue;
-//                        } else {
-//                            mSelectionOffset = mSelectionOffset + (1 - mSelectionOffset) * (1 - currentValue);
-//                        }
-//                        //Log.d(TAG, "onAnimationUpdate: position = " + position + " offset = " + mSelectionOffset);
-//                        invalidate();
-//                    }
-//                });
-//                animator.setInterpolator(new AccelerateInterpolator());
-//                animator.start();
-//                return;
-//            }
-//        }
         mSelectionOffset = positionOffset;
-        invalidate();
+        if (mFlatTitles != null) {
+            // 平铺模式下title的颜色也跟着变化
+            invalidate();
+        } else {
+            invalidateIndicator();
+        }
     }
 
     private int getChildIndex(int tabIndex) {
@@ -399,4 +557,532 @@ public class SlidingTabStrip extends LinearLayout {
         }
         return tabIndex;
     }
+
+    /*----------------------------------------------------------------------------------------*/
+    /*-----------------------------------tab的几何信息-----------------------------------------*/
+
+    /**
+     * 获取tab的数量, 即几何信息表中tab的数量
+     * 非虚拟化模式下在下一次onLayout之前不会包含刚加入的子view
+     */
+    int getTabCount() {
+        return mEngine.getTabCount();
+    }
+
+    /**
+     * 获取index对应的tab的left
+     */
+    int getTabLeft(int index) {
+        return mEngine.getTabLeft(index);
+    }
+
+    /**
+     * 获取index对应的tab的right
+     */
+    int getTabRight(int index) {
+        return mEngine.getTabRight(index);
+    }
+
+    /**
+     * 获取index对应的tab的中心
+     */
+    int getTabCenter(int index) {
+        return mEngine.getTabCenter(index);
+    }
+
+    /**
+     * 获取index对应的tab的width
+     */
+    int getTabWidth(int index) {
+        return mEngine.getTabWidth(index);
+    }
+
+    /**
+     * 获取前count个tab的宽度之和, 不包含tab之间的间隔
+     */
+    int getCumulativeTabWidth(int count) {
+        return mEngine.getCumulativeTabWidth(count);
+    }
+
+    /**
+     * 几何信息表和指示器的计算, SlidingTabLayout计算滚动位置时使用
+     */
+    TabLayoutEngine getEngine() {
+        return mEngine;
+    }
+
+    /**
+     * 获取index对应的tab的view, 虚拟化模式下没有绑定的tab返回null
+     */
+    View getTabView(int index) {
+        if (mIsVirtualized) {
+            return mVirtualTabs.get(index);
+        }
+        return getChildAt(index);
+    }
+
+    /**
+     * 通过横坐标查找所在的tab, 在几何信息表中二分查找, 超出范围时返回第一个或最后一个
+     */
+    int findTabIndexAt(int x) {
+        return mEngine.findTabIndexAt(x);
+    }
+
+    /**
+     * 重新计算几何信息表
+     * 平铺模式下使用onMeasure中分配的位置, 虚拟化模式下通过保存的宽度累加计算, 其余情况读取每个子view的位置
+     */
+    private void rebuildTabGeometry() {
+        if (mFlatTitles != null) {
+            mEngine.setTabPositions(mSlotLefts, mSlotWidths, mFlatTitles.getCount(), getPaddingLeft());
+        } else if (mIsVirtualized) {
+            mEngine.layoutSequential(mVirtualTabWidths, mVirtualTabCount, mVirtualTabGap, mVirtualContentOffset);
+        } else {
+            int count = getChildCount();
+            mEngine.resetTabBounds(count);
+            for (int i = 0; i < count; i++) {
+                View child = getChildAt(i);
+                mEngine.setTabBounds(i, child.getLeft(), child.getRight());
+            }
+        }
+    }
+
+    /*---------------------------------------end----------------------------------------------*/
+    /*----------------------------------------------------------------------------------------*/
+
+
+    /*----------------------------------------------------------------------------------------*/
+    /*-----------------------------------虚拟化模式--------------------------------------------*/
+
+    /**
+     * 设置是否是虚拟化模式
+     */
+    void setVirtualized(boolean isVirtualized) {
+        if (mIsVirtualized != isVirtualized) {
+            mIsVirtualized = isVirtualized;
+            requestLayout();
+        }
+    }
+
+    boolean isVirtualized() {
+        return mIsVirtualized;
+    }
+
+    /**
+     * 设置虚拟化模式下所有tab的宽度, 并重新计算每个tab的位置
+     * 平均分配模式下tab之间的间隔在onMeasure中按照实际宽度计算
+     */
+    void setVirtualTabWidths(int[] widths, int count) {
+        mVirtualTabWidths = widths;
+        mVirtualTabCount = count;
+        computeVirtualContentWidth();
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * 计算虚拟化模式下所有tab的总宽度, 并更新几何信息表
+     */
+    private void computeVirtualContentWidth() {
+        int width = 0;
+        for (int i = 0; i < mVirtualTabCount; i++) {
+            width += mVirtualTabWidths[i];
+        }
+        if (mVirtualTabCount > 1) {
+            width += (mVirtualTabCount - 1) * mVirtualTabGap;
+        }
+        mVirtualContentWidth = width;
+        rebuildTabGeometry();
+    }
+
+    /**
+     * 获取已经绑定了view的tab
+     */
+    SparseArray<View> getVirtualTabs() {
+        return mVirtualTabs;
+    }
+
+    /**
+     * 将绑定好的tabView加入到position的位置上
+     * 直接在当前的几何信息上测量和布局, 不会触发整个HorizontalScrollView重新布局
+     */
+    void attachVirtualTab(int position, View tabView) {
+        ViewGroup.LayoutParams lp = tabView.getLayoutParams();
+        if (lp == null) {
+            lp = generateDefaultLayoutParams();
+        }
+        mVirtualTabs.put(position, tabView);
+        addViewInLayout(tabView, -1, lp, true);
+
+        measureVirtualTab(tabView, mLastHeightMeasureSpec);
+        if (tabView.getMeasuredWidth() != mVirtualTabWidths[position]) {
+            // 宽度和保存的几何信息不一致, 需要重新计算所有tab的位置
+            mVirtualTabWidths[position] = tabView.getMeasuredWidth();
+            computeVirtualContentWidth();
+            requestLayout();
+        } else {
+            layoutVirtualTab(position, tabView);
+        }
+        invalidate();
+    }
+
+    /**
+     * 移除position位置上的tabView并返回, 用来回收复用
+     */
+    View detachVirtualTab(int position) {
+        View tabView = mVirtualTabs.get(position);
+        if (tabView != null) {
+            mVirtualTabs.remove(position);
+            removeViewInLayout(tabView);
+            invalidate();
+        }
+        return tabView;
+    }
+
+    /**
+     * 按照旧位置到新位置的对应关系移动已经绑定的tab, 对应新位置为-1的tab需要提前移除
+     */
+    void moveVirtualTabs(int[] oldToNew) {
+        SparseArray<View> movedTabs = new SparseArray<>(mVirtualTabs.size());
+        for (int i = 0; i < mVirtualTabs.size(); i++) {
+            movedTabs.put(oldToNew[mVirtualTabs.keyAt(i)], mVirtualTabs.valueAt(i));
+        }
+        mVirtualTabs = movedTabs;
+    }
+
+    /**
+     * 移除所有的tab
+     */
+    void clearTabs() {
+        mVirtualTabs.clear();
+        mVirtualTabCount = 0;
+        mVirtualContentWidth = 0;
+        mEngine.clear();
+        removeAllViews();
+    }
+
+    private void measureVirtualTab(View child, int heightMeasureSpec) {
+        ViewGroup.LayoutParams lp = child.getLayoutParams();
+        int childWidthMeasureSpec = getTabWidthMeasureSpec(child);
+        int childHeightMeasureSpec = getChildMeasureSpec(heightMeasureSpec, getPaddingTop() + getPaddingBottom(), lp.height);
+        child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+    }
+
+    /**
+     * 按照onMeasure中计算好的位置布局所有子view, 垂直方向支持LayoutParams.gravity
+     * 与LinearLayout一致, isBaselineAligned()时居上和居下的tab按照基线对齐, 例如选中的title字体变大之后
+     */
+    private void layoutDistributedTabs(int height) {
+        int paddingLeft = getPaddingLeft();
+        int paddingTop = getPaddingTop();
+        int contentHeight = height - paddingTop - getPaddingBottom();
+        int childCount = Math.min(getChildCount(), mChildSlotLefts.length);
+        for (int i = 0; i < childCount; i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() == GONE) {
+                continue;
+            }
+            LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            int childWidth = child.getMeasuredWidth();
+            int childHeight = child.getMeasuredHeight();
+            int left = paddingLeft + mChildSlotLefts[i] + lp.leftMargin;
+            int childBaseline = -1;
+            if (isBaselineAligned() && lp.height != LayoutParams.MATCH_PARENT) {
+                childBaseline = child.getBaseline();
+            }
+            int top;
+            switch (getVerticalGravity(lp)) {
+                case Gravity.TOP:
+                    top = paddingTop + lp.topMargin;
+                    if (childBaseline != -1) {
+                        top += mMaxAscent[BASELINE_GROUP_TOP] - childBaseline;
+                    }
+                    break;
+                case Gravity.CENTER_VERTICAL:
+                    top = paddingTop + (contentHeight - childHeight) / 2 + lp.topMargin - lp.bottomMargin;
+                    break;
+                case Gravity.BOTTOM:
+                    top = paddingTop + contentHeight - childHeight - lp.bottomMargin;
+                    if (childBaseline != -1) {
+                        top -= mMaxDescent[BASELINE_GROUP_BOTTOM] - (childHeight - childBaseline);
+                    }
+                    break;
+                default:
+                    top = paddingTop + lp.topMargin;
+            }
+            child.layout(left, top, left + childWidth, top + childHeight);
+        }
+    }
+
+    private void layoutVirtualTab(int position, View child) {
+        int left = mEngine.getTabLeft(position);
+        int top = getPaddingTop();
+        child.layout(left, top, left + child.getMeasuredWidth(), top + child.getMeasuredHeight());
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (mFlatTitles != null) {
+            measureFlatTabs(widthMeasureSpec, heightMeasureSpec);
+            return;
+        }
+        if (!mIsVirtualized) {
+            measureDistributedTabs(widthMeasureSpec, heightMeasureSpec);
+            return;
+        }
+
+        // 虚拟化模式下只测量已经绑定的tab, 其余tab的宽度使用保存的几何信息
+        mLastHeightMeasureSpec = heightMeasureSpec;
+        int maxChildHeight = 0;
+        boolean widthChanged = false;
+        for (int i = 0; i < mVirtualTabs.size(); i++) {
+            int position = mVirtualTabs.keyAt(i);
+            View child = mVirtualTabs.valueAt(i);
+            measureVirtualTab(child, heightMeasureSpec);
+            maxChildHeight = Math.max(maxChildHeight, child.getMeasuredHeight());
+            if (child.getMeasuredWidth() != mVirtualTabWidths[position]) {
+                // 例如被选中之后字体变大了, 更新保存的宽度
+                mVirtualTabWidths[position] = child.getMeasuredWidth();
+                widthChanged = true;
+            }
+        }
+        if (widthChanged) {
+            computeVirtualContentWidth();
+        }
+
+        // 平均分配模式下按照实际宽度计算tab之间的间隔, 其余模式在内容不足一屏时居中(见onLayout)
+        // 虚拟化模式不支持DISTRIBUTE_MODE_TAB_AS_DIVIDER, DISTRIBUTE_MODE_TAB_IN_SECTION_CENTER按照不分配处理
+        int gap = 0;
+        if (mDistributeMode == SlidingTabLayout.DISTRIBUTE_MODE_AVERAGE_SEGMENTATION && mVirtualTabCount > 1
+                && MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.EXACTLY) {
+            int totalTabWidth = mVirtualContentWidth - (mVirtualTabCount - 1) * mVirtualTabGap;
+            int availableWidth = MeasureSpec.getSize(widthMeasureSpec) - getPaddingLeft() - getPaddingRight();
+            gap = Math.max(0, (availableWidth - totalTabWidth) / (mVirtualTabCount - 1));
+        }
+        if (gap != mVirtualTabGap) {
+            mVirtualTabGap = gap;
+            computeVirtualContentWidth();
+        }
+
+        int width = resolveSize(mVirtualContentWidth + getPaddingLeft() + getPaddingRight(), widthMeasureSpec);
+        int height = resolveSize(maxChildHeight + getPaddingTop() + getPaddingBottom(), heightMeasureSpec);
+        setMeasuredDimension(width, height);
+    }
+
+    /**
+     * 非虚拟化模式下的测量, 一次遍历测量所有tab, 再按照实际可用的宽度和分配模式计算每个tab的位置
+     * HorizontalScrollView会先以UNSPECIFIED测量, 内容不足一屏时再以EXACTLY的宽度测量一次, 此时才进行分配
+     */
+    private void measureDistributedTabs(int widthMeasureSpec, int heightMeasureSpec) {
+        int childCount = getChildCount();
+        if (mChildSlotLefts.length < childCount) {
+            mChildSlotLefts = new int[childCount];
+        }
+        ensureSlotCapacity(childCount);
+        // 分割模式下第一个和最后一个子view是两端的padding view, 宽度由分配结果决定
+        int firstTab = mIsTabAsDividerMode ? 1 : 0;
+        int endTab = mIsTabAsDividerMode ? Math.max(firstTab, childCount - 1) : childCount;
+        int verticalPadding = getPaddingTop() + getPaddingBottom();
+        int heightMode = MeasureSpec.getMode(heightMeasureSpec);
+        boolean baselineAligned = isBaselineAligned();
+        Arrays.fill(mMaxAscent, -1);
+        Arrays.fill(mMaxDescent, -1);
+
+        int totalTabWidth = 0;
+        int tabCount = 0;
+        int maxChildHeight = 0;
+        for (int i = firstTab; i < endTab; i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() == GONE) {
+                continue;
+            }
+            LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            int childWidthMeasureSpec = getTabWidthMeasureSpec(child);
+            int childHeightMeasureSpec = getChildMeasureSpec(heightMeasureSpec,
+                    verticalPadding + lp.topMargin + lp.bottomMargin, lp.height);
+            child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+            mSlotWidths[tabCount] = getSlotWidth(child);
+            mSlotChildIndices[tabCount] = i;
+            totalTabWidth += mSlotWidths[tabCount];
+            maxChildHeight = Math.max(maxChildHeight, child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin);
+            if (baselineAligned) {
+                int childBaseline = child.getBaseline();
+                if (childBaseline != -1) {
+                    int group = getBaselineGroup(getVerticalGravity(lp));
+                    mMaxAscent[group] = Math.max(mMaxAscent[group], childBaseline);
+                    mMaxDescent[group] = Math.max(mMaxDescent[group], child.getMeasuredHeight() - childBaseline);
+                }
+            }
+            tabCount++;
+        }
+        // 基线对齐之后的高度可能超过最高的tab
+        int maxAscent = max(mMaxAscent);
+        if (maxAscent != -1) {
+            maxChildHeight = Math.max(maxChildHeight, maxAscent + max(mMaxDescent));
+        }
+
+        int distributeWidth = getDistributeWidth(widthMeasureSpec, totalTabWidth);
+        distributeTabs(tabCount, totalTabWidth, distributeWidth);
+        for (int k = 0; k < tabCount; k++) {
+            mChildSlotLefts[mSlotChildIndices[k]] = mSlotLefts[k];
+        }
+
+        int width = resolveSize(distributeWidth + getPaddingLeft() + getPaddingRight(), widthMeasureSpec);
+        int height = resolveSize(maxChildHeight + verticalPadding, heightMeasureSpec);
+        setMeasuredDimension(width, height);
+
+        // 两端的padding view占满tab以外的空间
+        if (mIsTabAsDividerMode && childCount >= 2) {
+            int firstLeft = tabCount > 0 ? mSlotLefts[0] : distributeWidth / 2;
+            int lastRight = tabCount > 0 ? mSlotLefts[tabCount - 1] + mSlotWidths[tabCount - 1] : firstLeft;
+            measurePaddingChild(0, 0, firstLeft, height);
+            measurePaddingChild(childCount - 1, lastRight, distributeWidth - lastRight, height);
+        }
+
+        // 高度不确定的时候, 与LinearLayout一样让MATCH_PARENT的tab使用统一的高度
+        if (heightMode != MeasureSpec.EXACTLY) {
+            for (int i = firstTab; i < endTab; i++) {
+                View child = getChildAt(i);
+                LayoutParams lp = (LayoutParams) child.getLayoutParams();
+                if (child.getVisibility() != GONE && lp.height == LayoutParams.MATCH_PARENT) {
+                    child.measure(MeasureSpec.makeMeasureSpec(child.getMeasuredWidth(), MeasureSpec.EXACTLY),
+                            MeasureSpec.makeMeasureSpec(height - verticalPadding - lp.topMargin - lp.bottomMargin, MeasureSpec.EXACTLY));
+                }
+            }
+        }
+    }
+
+    /**
+     * 子view在垂直方向的gravity, 没有指定时与LinearLayout一样使用Gravity.TOP(SlidingTabStrip只设置了水平方向的gravity)
+     */
+    private static int getVerticalGravity(LayoutParams lp) {
+        return (lp.gravity < 0 ? Gravity.TOP : lp.gravity) & Gravity.VERTICAL_GRAVITY_MASK;
+    }
+
+    private static int getBaselineGroup(int verticalGravity) {
+        switch (verticalGravity) {
+            case Gravity.TOP:
+                return BASELINE_GROUP_TOP;
+            case Gravity.CENTER_VERTICAL:
+                return BASELINE_GROUP_CENTER_VERTICAL;
+            case Gravity.BOTTOM:
+                return BASELINE_GROUP_BOTTOM;
+            default:
+                return BASELINE_GROUP_FILL;
+        }
+    }
+
+    private static int max(int[] values) {
+        int max = values[0];
+        for (int i = 1; i < values.length; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    private void ensureSlotCapacity(int count) {
+        if (mSlotWidths.length < count) {
+            mSlotWidths = new int[count];
+            mSlotLefts = new int[count];
+            mSlotChildIndices = new int[count];
+        }
+    }
+
+    /**
+     * 只有确定了宽度的时候才进行分配, 否则按照tab本身的宽度依次排列
+     */
+    private int getDistributeWidth(int widthMeasureSpec, int totalTabWidth) {
+        if (MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.EXACTLY) {
+            return Math.max(totalTabWidth, MeasureSpec.getSize(widthMeasureSpec) - getPaddingLeft() - getPaddingRight());
+        }
+        return totalTabWidth;
+    }
+
+    /**
+     * 按照分配模式, 根据mSlotWidths中前tabCount个tab的宽度计算每个tab的left, 写入mSlotLefts, 结果相对于paddingLeft
+     */
+    private void distributeTabs(int tabCount, int totalTabWidth, int distributeWidth) {
+        TabLayoutEngine.distribute(mDistributeMode, mSlotWidths, tabCount, totalTabWidth, distributeWidth, mSlotLefts);
+    }
+
+    /**
+     * 平铺模式下的测量, tab的宽度来自预先计算好的文本布局
+     */
+    private void measureFlatTabs(int widthMeasureSpec, int heightMeasureSpec) {
+        int tabCount = mFlatTitles.getCount();
+        ensureSlotCapacity(tabCount);
+        int totalTabWidth = 0;
+        for (int i = 0; i < tabCount; i++) {
+            mSlotWidths[i] = mFlatTitles.getWidth(i);
+            totalTabWidth += mSlotWidths[i];
+        }
+        int distributeWidth = getDistributeWidth(widthMeasureSpec, totalTabWidth);
+        distributeTabs(tabCount, totalTabWidth, distributeWidth);
+
+        int width = resolveSize(distributeWidth + getPaddingLeft() + getPaddingRight(), widthMeasureSpec);
+        int height = resolveSize(mFlatTitles.getHeight() + getPaddingTop() + getPaddingBottom(), heightMeasureSpec);
+        setMeasuredDimension(width, height);
+    }
+
+    private void measurePaddingChild(int index, int left, int width, int height) {
+        mChildSlotLefts[index] = left;
+        getChildAt(index).measure(MeasureSpec.makeMeasureSpec(Math.max(0, width), MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(height - getPaddingTop() - getPaddingBottom(), MeasureSpec.EXACTLY));
+    }
+
+    /**
+     * tab的宽度约束, 纯文本的tab直接使用TitleWidthCache中缓存的宽度, 不需要TextView再测量一次文本
+     */
+    private static int getTabWidthMeasureSpec(View child) {
+        int cachedWidth = TitleWidthCache.getTabWidth(child);
+        if (cachedWidth >= 0) {
+            return MeasureSpec.makeMeasureSpec(cachedWidth, MeasureSpec.EXACTLY);
+        }
+        int width = child.getLayoutParams().width;
+        return width >= 0
+                ? MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY)
+                : MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+    }
+
+    /**
+     * 获取绑定好数据的tabView的宽度, 用于虚拟化模式下计算几何信息
+     * 纯文本的tab直接读取缓存, 其余的tab测量一次
+     */
+    static int measureTabWidth(View tabView) {
+        int cachedWidth = TitleWidthCache.getTabWidth(tabView);
+        if (cachedWidth >= 0) {
+            return cachedWidth;
+        }
+        tabView.measure(MeasureSpec.UNSPECIFIED, MeasureSpec.UNSPECIFIED);
+        return tabView.getMeasuredWidth();
+    }
+
+    /**
+     * 子view占用的宽度, 包含左右margin
+     */
+    private static int getSlotWidth(View child) {
+        LayoutParams lp = (LayoutParams) child.getLayoutParams();
+        return child.getMeasuredWidth() + lp.leftMargin + lp.rightMargin;
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        if (mFlatTitles != null) {
+            rebuildTabGeometry();
+            return;
+        }
+        if (!mIsVirtualized) {
+            layoutDistributedTabs(b - t);
+            rebuildTabGeometry();
+            return;
+        }
+
+        // 与LinearLayout的Gravity.CENTER_HORIZONTAL保持一致, 内容不足一屏时居中
+        int contentWidth = r - l - getPaddingLeft() - getPaddingRight();
+        mVirtualContentOffset = getPaddingLeft() + Math.max(0, (contentWidth - mVirtualContentWidth) / 2);
+        rebuildTabGeometry();
+        for (int i = 0; i < mVirtualTabs.size(); i++) {
+            layoutVirtualTab(mVirtualTabs.keyAt(i), mVirtualTabs.valueAt(i));
+        }
+    }
 }
@@ -0,0 +1,302 @@
+package com.example.mytablayout.tab;
+
+import android.os.Build;
+import android.support.annotation.RequiresApi;
+import android.view.Choreographer;
+
+/**
+ * SlidingTabLayout的性能统计, 通过SlidingTabLayout.setMetrics()开启, 默认关闭, 关闭时没有任何开销
+ *
+ * 统计内容:
+ * 1. populateTabStrip, notifyDataChange, onMeasure, onLayout和SlidingTabStrip.onDraw的耗时
+ * 2. 每次拖动期间onPageScrolled的回调频率(次/秒)
+ * 3. onPageSelected的次数, 以及其中导致tab重新布局的次数
+ * 4. 拖动期间的帧数和超时的帧数(与上一帧的间隔超过1.5个帧周期)
+ *
+ * 所有统计都记录在预先分配的数组中, 记录时不创建任何对象, 可以在滑动和绘制过程中使用
+ * 每次拖动结束(回到SCROLL_STATE_IDLE)时回调Listener, 也可以随时调用report()
+ *
+ * 只在主线程中使用
+ */
+public final class TabLayoutMetrics {
+    public static final int METRIC_POPULATE = 0;                    // populateTabStrip的耗时(us)
+    public static final int METRIC_NOTIFY_DATA_CHANGE = 1;          // notifyDataChange的耗时(us)
+    public static final int METRIC_MEASURE = 2;                     // SlidingTabLayout.onMeasure的耗时(us)
+    public static final int METRIC_LAYOUT = 3;                      // SlidingTabLayout.onLayout的耗时(us)
+    public static final int METRIC_DRAW = 4;                        // SlidingTabStrip.onDraw的耗时(us)
+    public static final int METRIC_SCROLL_RATE = 5;                 // 每次拖动期间onPageScrolled的频率(次/秒)
+    private static final int METRIC_COUNT = 6;
+
+    private static final long DEFAULT_FRAME_INTERVAL_NANOS = 16666667L; // 60Hz的帧周期
+    private static final long NANOS_PER_MICRO = 1000L;
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    /**
+     * 统计结果的回调
+     */
+    public interface Listener {
+        /**
+         * 每次拖动结束或者调用report()时回调, metrics只在回调期间有效, 需要保留时自行复制其中的数值
+         */
+        void onMetricsReport(TabLayoutMetrics metrics);
+    }
+
+    /**
+     * 按2的幂分桶的直方图, 第i个桶记录[2^(i-1), 2^i)范围内的值, 第0个桶记录小于1的值, 最后一个桶记录剩余所有的值
+     * 耗时以微秒记录时, 最后一个桶的下限约为4秒
+     */
+    public static final class Histogram {
+        public static final int BUCKET_COUNT = 24;
+
+        private final int[] mBuckets = new int[BUCKET_COUNT];
+        private int mCount;
+        private long mSum;
+        private long mMax;
+
+        void record(long value) {
+            int bucket = value <= 0 ? 0 : Math.min(64 - Long.numberOfLeadingZeros(value), BUCKET_COUNT - 1);
+            mBuckets[bucket]++;
+            mCount++;
+            mSum += value;
+            if (value > mMax) {
+                mMax = value;
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                mBuckets[i] = 0;
+            }
+            mCount = 0;
+            mSum = 0;
+            mMax = 0;
+        }
+
+        public int getCount() {
+            return mCount;
+        }
+
+        public long getSum() {
+            return mSum;
+        }
+
+        public long getMax() {
+            return mMax;
+        }
+
+        public long getMean() {
+            return mCount > 0 ? mSum / mCount : 0;
+        }
+
+        /**
+         * 第bucket个桶中的数量
+         */
+        public int getBucketCount(int bucket) {
+            return mBuckets[bucket];
+        }
+
+        /**
+         * 第bucket个桶的上限(不包含), 最后一个桶返回Long.MAX_VALUE
+         */
+        public static long getBucketUpperBound(int bucket) {
+            return bucket < BUCKET_COUNT - 1 ? 1L << bucket : Long.MAX_VALUE;
+        }
+
+        /**
+         * 估算的百分位数, 返回该百分位所在桶的上限, 不超过记录到的最大值
+         *
+         * @param percentile 0~100
+         */
+        public long getPercentile(float percentile) {
+            if (mCount == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(mCount * Math.max(0f, Math.min(percentile, 100f)) / 100f);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += mBuckets[i];
+                if (seen >= target && seen > 0) {
+                    return Math.min(getBucketUpperBound(i), mMax);
+                }
+            }
+            return mMax;
+        }
+    }
+
+    private final Histogram[] mHistograms = new Histogram[METRIC_COUNT];
+    private Listener mListener;
+    private long mFrameIntervalNanos = DEFAULT_FRAME_INTERVAL_NANOS;
+
+    private int mPageSelectedCount;                                  // onPageSelected的次数
+    private int mPageSelectedRelayoutCount;                          // 导致tab重新布局的onPageSelected次数
+    private int mDragCount;                                          // 拖动的次数
+    private int mDragFrameCount;                                     // 拖动期间的帧数
+    private int mFrameOverrunCount;                                  // 拖动期间超时的帧数
+
+    private boolean mDragging;                                       // 是否正在统计一次拖动
+    private long mDragStartNanos;                                    // 拖动开始的时间
+    private int mDragScrollCallbacks;                                // 本次拖动期间onPageScrolled的次数
+    private long mLastFrameTimeNanos;                                // 上一帧的时间, 0表示还没有收到第一帧
+    private Choreographer.FrameCallback mDragFrameCallback;
+
+    public TabLayoutMetrics() {
+        for (int i = 0; i < METRIC_COUNT; i++) {
+            mHistograms[i] = new Histogram();
+        }
+    }
+
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * 设置判断帧超时使用的帧周期, 默认是60Hz, 高刷新率的屏幕需要设置为实际的帧周期
+     */
+    public void setFrameIntervalNanos(long frameIntervalNanos) {
+        if (frameIntervalNanos > 0) {
+            mFrameIntervalNanos = frameIntervalNanos;
+        }
+    }
+
+    /**
+     * METRIC_*对应的直方图
+     */
+    public Histogram getHistogram(int metric) {
+        return mHistograms[metric];
+    }
+
+    public int getPageSelectedCount() {
+        return mPageSelectedCount;
+    }
+
+    public int getPageSelectedRelayoutCount() {
+        return mPageSelectedRelayoutCount;
+    }
+
+    public int getDragCount() {
+        return mDragCount;
+    }
+
+    public int getDragFrameCount() {
+        return mDragFrameCount;
+    }
+
+    public int getFrameOverrunCount() {
+        return mFrameOverrunCount;
+    }
+
+    /**
+     * 立即回调一次Listener
+     */
+    public void report() {
+        if (mListener != null) {
+            mListener.onMetricsReport(this);
+        }
+    }
+
+    /**
+     * 清空所有统计, 正在进行的拖动从现在开始重新计算
+     */
+    public void reset() {
+        for (int i = 0; i < METRIC_COUNT; i++) {
+            mHistograms[i].reset();
+        }
+        mPageSelectedCount = 0;
+        mPageSelectedRelayoutCount = 0;
+        mDragCount = 0;
+        mDragFrameCount = 0;
+        mFrameOverrunCount = 0;
+        mDragScrollCallbacks = 0;
+        mDragStartNanos = System.nanoTime();
+    }
+
+    /**
+     * 记录从startNanos(System.nanoTime())到现在的耗时
+     */
+    void recordDuration(int metric, long startNanos) {
+        mHistograms[metric].record((System.nanoTime() - startNanos) / NANOS_PER_MICRO);
+    }
+
+    void onPageSelected(boolean relayout) {
+        mPageSelectedCount++;
+        if (relayout) {
+            mPageSelectedRelayoutCount++;
+        }
+    }
+
+    void onPageScrolled() {
+        if (mDragging) {
+            mDragScrollCallbacks++;
+        }
+    }
+
+    /**
+     * 开始拖动, 之后的每一帧都检查与上一帧的间隔, 直到onScrollIdle()
+     */
+    void onDragStarted() {
+        if (mDragging) {
+            return;
+        }
+        mDragging = true;
+        mDragStartNanos = System.nanoTime();
+        mDragScrollCallbacks = 0;
+        mLastFrameTimeNanos = 0;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            if (mDragFrameCallback == null) {
+                mDragFrameCallback = new DragFrameCallback();
+            }
+            Choreographer.getInstance().postFrameCallback(mDragFrameCallback);
+        }
+    }
+
+    /**
+     * 拖动以及之后的惯性滑动结束, 记录本次拖动的回调频率并回调Listener
+     */
+    void onScrollIdle() {
+        if (!mDragging) {
+            return;
+        }
+        stopDrag();
+        long elapsed = System.nanoTime() - mDragStartNanos;
+        if (elapsed > 0) {
+            mHistograms[METRIC_SCROLL_RATE].record(mDragScrollCallbacks * NANOS_PER_SECOND / elapsed);
+        }
+        mDragCount++;
+        report();
+    }
+
+    /**
+     * 与SlidingTabLayout断开关联时调用, 丢弃没有完成的拖动
+     */
+    void cancelDrag() {
+        if (mDragging) {
+            stopDrag();
+        }
+    }
+
+    private void stopDrag() {
+        mDragging = false;
+        if (mDragFrameCallback != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            Choreographer.getInstance().removeFrameCallback(mDragFrameCallback);
+        }
+    }
+
+    @RequiresApi(Build.VERSION_CODES.JELLY_BEAN)
+    private class DragFrameCallback implements Choreographer.FrameCallback {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!mDragging) {
+                return;
+            }
+            if (mLastFrameTimeNanos != 0) {
+                mDragFrameCount++;
+                // 间隔超过1.5个帧周期说明至少错过了一次vsync
+                if ((frameTimeNanos - mLastFrameTimeNanos) * 2 > mFrameIntervalNanos * 3) {
+                    mFrameOverrunCount++;
+                }
+            }
+            mLastFrameTimeNanos = frameTimeNanos;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.mytablayout.tab;
+
+/**
+ * SlidingTabLayout与翻页控件之间的桥接
+ * 提供tab的数量和title, 并把翻页控件的滑动, 选中和数据变化转换成统一的回调,
+ * 指示器, 滚动同步和点击切换因此与具体的翻页控件无关
+ *
+ * 已经实现了ViewPager(ViewPagerBinding)和横向RecyclerView(RecyclerViewPagerBinding)两种,
+ * 通过SlidingTabLayout.setPagerBinding()关联
+ */
+public abstract class TabPagerBinding {
+    /*滑动状态, 取值与ViewPager和RecyclerView一致*/
+    public static final int SCROLL_STATE_IDLE = 0;                   // 静止
+    public static final int SCROLL_STATE_DRAGGING = 1;               // 正在拖动
+    public static final int SCROLL_STATE_SETTLING = 2;               // 松手之后正在滑向最终的页面
+
+    /**
+     * 翻页控件的事件回调, 都在主线程中调用
+     */
+    public interface Callback {
+        void onPageScrolled(int position, float positionOffset, int positionOffsetPixels);
+
+        void onPageSelected(int position);
+
+        void onPageScrollStateChanged(int state);
+
+        /**
+         * tab的数量, title或者id发生了变化
+         */
+        void onPagesChanged();
+
+        /**
+         * 更换了adapter, 需要重新填充所有tab
+         */
+        void onPagesReplaced();
+    }
+
+    private Callback mCallback;
+
+    final void attach(Callback callback) {
+        mCallback = callback;
+        onAttach();
+    }
+
+    final void detach() {
+        onDetach();
+        mCallback = null;
+    }
+
+    /**
+     * 开始监听翻页控件
+     */
+    protected abstract void onAttach();
+
+    /**
+     * 停止监听翻页控件
+     */
+    protected abstract void onDetach();
+
+    /**
+     * 是否已经有数据, 例如翻页控件还没有设置adapter时返回false
+     */
+    public abstract boolean hasPages();
+
+    public abstract int getCount();
+
+    public abstract CharSequence getPageTitle(int position);
+
+    public abstract int getCurrentItem();
+
+    /**
+     * 点击tab时调用, 平滑地切换到position
+     */
+    public abstract void setCurrentItem(int position);
+
+    /**
+     * 翻页控件在当前页面两侧已经保留的页面数量, 例如ViewPager的offscreenPageLimit
+     * 预加载跳过这些页面, 从它们之外的页面开始
+     */
+    public int getOffscreenPageCount() {
+        return 0;
+    }
+
+    /**
+     * 为每个tab提供稳定id的对象, 没有的话返回null, 数据变化时在原位置重新绑定所有tab
+     */
+    public SlidingTabLayout.TabIdProvider getTabIdProvider() {
+        return null;
+    }
+
+    protected final void dispatchPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+        if (mCallback != null) {
+            mCallback.onPageScrolled(position, positionOffset, positionOffsetPixels);
+        }
+    }
+
+    protected final void dispatchPageSelected(int position) {
+        if (mCallback != null) {
+            mCallback.onPageSelected(position);
+        }
+    }
+
+    protected final void dispatchPageScrollStateChanged(int state) {
+        if (mCallback != null) {
+            mCallback.onPageScrollStateChanged(state);
+        }
+    }
+
+    protected final void dispatchPagesChanged() {
+        if (mCallback != null) {
+            mCallback.onPagesChanged();
+        }
+    }
+
+    protected final void dispatchPagesReplaced() {
+        if (mCallback != null) {
+            mCallback.onPagesReplaced();
+        }
+    }
+}
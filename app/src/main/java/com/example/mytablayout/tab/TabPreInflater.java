@@ -0,0 +1,87 @@
+package com.example.mytablayout.tab;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 在后台线程中提前inflate自定义的tab布局
+ * 和AsyncLayoutInflater的思路一样, 不同的是这里一次inflate一批相同的布局,
+ * 全部完成之后只在主线程回调一次, 回调中的view按照inflate的顺序排列
+ *
+ * 注意: inflate出来的view还没有绑定任何数据, 需要在主线程中绑定并加入到SlidingTabStrip
+ */
+class TabPreInflater {
+    private static final String TAG = "自定义->TabPreInflater";
+
+    private static ExecutorService sExecutor;                        // 所有SlidingTabLayout共用的后台线程, 平铺模式的文本布局也在这里计算
+
+    private final LayoutInflater mInflater;                          // 只在inflate线程中使用
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * inflate完成的回调, 在主线程中调用
+     */
+    interface Callback {
+        /**
+         * @param requestCount 请求inflate的数量, inflate失败的时候views的数量会少于requestCount
+         */
+        void onTabViewsInflated(int layoutId, int requestCount, List<View> views);
+    }
+
+    TabPreInflater(Context context) {
+        // 复制一个LayoutInflater, 避免和主线程共用同一个对象
+        mInflater = LayoutInflater.from(context).cloneInContext(context);
+    }
+
+    static synchronized ExecutorService getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "TabPreInflater");
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                }
+            });
+        }
+        return sExecutor;
+    }
+
+    /**
+     * 在后台线程中inflate count个layoutId布局, parent只用来生成LayoutParams
+     */
+    void inflate(final int layoutId, final ViewGroup parent, final int count, final Callback callback) {
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<View> views = new ArrayList<>(count);
+                try {
+                    for (int i = 0; i < count; i++) {
+                        views.add(mInflater.inflate(layoutId, parent, false));
+                    }
+                } catch (RuntimeException e) {
+                    // 布局中有不能在后台线程创建的view, 剩下的交给主线程inflate
+                    Log.w(TAG, "inflate: failed to inflate tab layout in background", e);
+                }
+
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onTabViewsInflated(layoutId, count, views);
+                    }
+                });
+            }
+        });
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.mytablayout.tab;
+
+import android.util.SparseArray;
+import android.view.View;
+
+import com.example.mytablayout.R;
+
+import java.util.ArrayList;
+
+/**
+ * tabView的回收池, 按照viewType分别缓存被移除的tabView
+ * 重新填充tab的时候优先从回收池中获取, 只有回收池为空的时候才需要重新inflate
+ *
+ * viewType保存在tabView的tag(R.id.tab_view_type)中
+ */
+class TabViewPool {
+    private final int MAX_SCRAP = 32;                                // 每种viewType最多缓存的数量
+
+    private SparseArray<ArrayList<View>> mScrapViews = new SparseArray<>(); // viewType->被回收的tabView
+
+    /**
+     * 为新创建的tabView记录viewType
+     */
+    static void setViewType(View view, int viewType) {
+        view.setTag(R.id.tab_view_type, viewType);
+    }
+
+    /**
+     * 获取tabView的viewType, 没有记录的返回-1
+     */
+    static int getViewType(View view) {
+        Object viewType = view.getTag(R.id.tab_view_type);
+        return viewType instanceof Integer ? (Integer) viewType : -1;
+    }
+
+    /**
+     * 从回收池中获取一个viewType对应的tabView, 没有的话返回null
+     */
+    View obtain(int viewType) {
+        ArrayList<View> scrap = mScrapViews.get(viewType);
+        if (scrap == null || scrap.isEmpty()) {
+            return null;
+        }
+        return scrap.remove(scrap.size() - 1);
+    }
+
+    /**
+     * 回收一个已经从SlidingTabStrip中移除的tabView, 超过缓存数量的直接丢弃
+     */
+    void recycle(View view) {
+        // 停止可能还在进行的插入动画
+        view.animate().cancel();
+        view.setAlpha(1f);
+
+        int viewType = getViewType(view);
+        ArrayList<View> scrap = mScrapViews.get(viewType);
+        if (scrap == null) {
+            scrap = new ArrayList<>();
+            mScrapViews.put(viewType, scrap);
+        }
+        if (scrap.size() < MAX_SCRAP) {
+            scrap.add(view);
+        }
+    }
+
+    /**
+     * 放入一个提前inflate好的tabView, 不受缓存数量的限制
+     */
+    void put(View view) {
+        int viewType = getViewType(view);
+        ArrayList<View> scrap = mScrapViews.get(viewType);
+        if (scrap == null) {
+            scrap = new ArrayList<>();
+            mScrapViews.put(viewType, scrap);
+        }
+        scrap.add(view);
+    }
+
+    /**
+     * 获取回收池中viewType类型的tabView数量
+     */
+    int getScrapCount(int viewType) {
+        ArrayList<View> scrap = mScrapViews.get(viewType);
+        return scrap == null ? 0 : scrap.size();
+    }
+
+    /**
+     * 丢弃回收池中viewType类型的tabView, 例如自定义布局更换之后旧布局的tabView
+     */
+    void clear(int viewType) {
+        mScrapViews.remove(viewType);
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.mytablayout.tab;
+
+import android.graphics.Typeface;
+import android.os.Build;
+import android.support.v4.view.ViewCompat;
+import android.text.Spanned;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.LruCache;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.example.mytablayout.R;
+
+import java.util.Locale;
+
+/**
+ * 进程内共享的title宽度缓存, 所有SlidingTabLayout共用
+ * 以文本, 字体大小, 字体, 字间距和屏幕密度作为key, 缓存测量出的文本宽度, 按照估算的内存大小进行LRU淘汰
+ *
+ * 只有通过setMeasurable()标记过的纯文本TextView(默认的tabView和占位view)才会使用缓存,
+ * 自定义布局的tab仍然走完整的measure流程
+ */
+public final class TitleWidthCache {
+    private static final int DEFAULT_MAX_SIZE_BYTES = 64 * 1024;    // 默认的内存上限, 按照估算的字节数计算
+    private static final int ENTRY_OVERHEAD_BYTES = 64;             // 每一项除文本以外的估算开销
+
+    private static volatile TitleWidthCache sInstance;
+
+    private final LruCache<Key, Integer> mCache;
+    private final Key mLookupKey = new Key();                       // 查找时复用的key, 只有未命中时才创建新的key
+
+    public static TitleWidthCache getInstance() {
+        if (sInstance == null) {
+            synchronized (TitleWidthCache.class) {
+                if (sInstance == null) {
+                    sInstance = new TitleWidthCache(DEFAULT_MAX_SIZE_BYTES);
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    private TitleWidthCache(int maxSizeBytes) {
+        mCache = new LruCache<Key, Integer>(maxSizeBytes) {
+            @Override
+            protected int sizeOf(Key key, Integer width) {
+                return ENTRY_OVERHEAD_BYTES + key.mText.length() * 2;
+            }
+        };
+    }
+
+    /**
+     * 标记一个纯文本的tabView可以使用缓存的宽度, allCaps与TextView.setAllCaps()保持一致
+     */
+    static void setMeasurable(TextView view, boolean allCaps) {
+        view.setTag(R.id.tab_title_all_caps, allCaps);
+    }
+
+    /**
+     * 获取标记过的tabView在WRAP_CONTENT时的宽度, 不能使用缓存的返回-1
+     */
+    static int getTabWidth(View view) {
+        return view instanceof TextView ? getTabWidth(view, ((TextView) view).getText()) : -1;
+    }
+
+    /**
+     * 获取标记过的tabView显示text时的宽度, 只测量文本, 不需要先设置给tabView, 不能使用缓存的返回-1
+     */
+    static int getTabWidth(View view, CharSequence text) {
+        Object allCaps = view.getTag(R.id.tab_title_all_caps);
+        if (!(allCaps instanceof Boolean) || !(view instanceof TextView)
+                || view.getLayoutParams() == null || view.getLayoutParams().width != ViewGroup.LayoutParams.WRAP_CONTENT) {
+            return -1;
+        }
+        TextView textView = (TextView) view;
+        float density = view.getResources().getDisplayMetrics().density;
+        int textWidth = getInstance().getTextWidth(text, textView.getPaint(), (Boolean) allCaps, density);
+        if (textWidth < 0) {
+            return -1;
+        }
+        int width = textWidth + textView.getCompoundPaddingLeft() + textView.getCompoundPaddingRight();
+        return Math.max(width, ViewCompat.getMinimumWidth(view));
+    }
+
+    /**
+     * 获取文本的宽度, 带有样式的文本不缓存, 返回-1
+     */
+    public synchronized int getTextWidth(CharSequence text, TextPaint paint, boolean allCaps, float density) {
+        if (text == null) {
+            text = "";
+        }
+        if (text instanceof Spanned) {
+            return -1;
+        }
+
+        mLookupKey.set(text, paint, allCaps, density);
+        Integer width = mCache.get(mLookupKey);
+        mLookupKey.mText = null; // 不持有调用方的文本
+        if (width != null) {
+            return width;
+        }
+
+        CharSequence measuredText = allCaps ? text.toString().toUpperCase(Locale.getDefault()) : text;
+        int measuredWidth = (int) Math.ceil(paint.measureText(measuredText, 0, measuredText.length()));
+        Key key = new Key();
+        key.set(text.toString(), paint, allCaps, density);
+        mCache.put(key, measuredWidth);
+        return measuredWidth;
+    }
+
+    /**
+     * 命中的次数
+     */
+    public int getHitCount() {
+        return mCache.hitCount();
+    }
+
+    /**
+     * 未命中的次数, 每次未命中都会测量一次文本
+     */
+    public int getMissCount() {
+        return mCache.missCount();
+    }
+
+    /**
+     * 因为超过内存上限被淘汰的数量
+     */
+    public int getEvictionCount() {
+        return mCache.evictionCount();
+    }
+
+    /**
+     * 当前占用的估算字节数
+     */
+    public int getSizeBytes() {
+        return mCache.size();
+    }
+
+    /**
+     * 内存上限, 单位是估算的字节数
+     */
+    public int getMaxSizeBytes() {
+        return mCache.maxSize();
+    }
+
+    /**
+     * 清空缓存, 例如字体资源发生变化的时候
+     */
+    public void clear() {
+        mCache.evictAll();
+    }
+
+    private static final class Key {
+        CharSequence mText;
+        float mTextSize;
+        Typeface mTypeface;
+        float mLetterSpacing;
+        boolean mAllCaps;
+        float mDensity;
+        int mHashCode;
+
+        void set(CharSequence text, TextPaint paint, boolean allCaps, float density) {
+            mText = text;
+            mTextSize = paint.getTextSize();
+            mTypeface = paint.getTypeface();
+            mLetterSpacing = Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP ? paint.getLetterSpacing() : 0f;
+            mAllCaps = allCaps;
+            mDensity = density;
+
+            // 与String.hashCode()的计算方式一致, 查找时不需要把CharSequence转换成String
+            int hash = 0;
+            for (int i = 0; i < text.length(); i++) {
+                hash = 31 * hash + text.charAt(i);
+            }
+            hash = 31 * hash + Float.floatToIntBits(mTextSize);
+            hash = 31 * hash + (mTypeface != null ? mTypeface.hashCode() : 0);
+            hash = 31 * hash + Float.floatToIntBits(mLetterSpacing);
+            hash = 31 * hash + (mAllCaps ? 1 : 0);
+            hash = 31 * hash + Float.floatToIntBits(mDensity);
+            mHashCode = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return mHashCode == other.mHashCode
+                    && mTextSize == other.mTextSize
+                    && mLetterSpacing == other.mLetterSpacing
+                    && mAllCaps == other.mAllCaps
+                    && mDensity == other.mDensity
+                    && (mTypeface == null ? other.mTypeface == null : mTypeface.equals(other.mTypeface))
+                    && TextUtils.equals(mText, other.mText);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.mytablayout.tab;
+
+import android.database.DataSetObserver;
+import android.support.annotation.NonNull;
+import android.support.v4.view.PagerAdapter;
+import android.support.v4.view.ViewPager;
+
+/**
+ * ViewPager的桥接, title来自PagerAdapter.getPageTitle()
+ * adapter实现了SlidingTabLayout.TabIdProvider时, 数据变化只更新变化的tab
+ */
+public class ViewPagerBinding extends TabPagerBinding {
+    private final ViewPager mViewPager;
+    private PagerAdapter mObservedAdapter;                           // 正在监听数据变化的adapter
+
+    private final ViewPager.OnPageChangeListener mPageChangeListener = new ViewPager.OnPageChangeListener() {
+        @Override
+        public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+            dispatchPageScrolled(position, positionOffset, positionOffsetPixels);
+        }
+
+        @Override
+        public void onPageSelected(int position) {
+            dispatchPageSelected(position);
+        }
+
+        @Override
+        public void onPageScrollStateChanged(int state) {
+            dispatchPageScrollStateChanged(state);
+        }
+    };
+
+    // 监听adapter的数据变化, 自动增量更新tab
+    private final DataSetObserver mAdapterObserver = new DataSetObserver() {
+        @Override
+        public void onChanged() {
+            dispatchPagesChanged();
+        }
+
+        @Override
+        public void onInvalidated() {
+            dispatchPagesChanged();
+        }
+    };
+
+    // ViewPager更换了adapter之后重新监听并填充
+    private final ViewPager.OnAdapterChangeListener mAdapterChangeListener = new ViewPager.OnAdapterChangeListener() {
+        @Override
+        public void onAdapterChanged(@NonNull ViewPager viewPager, PagerAdapter oldAdapter, PagerAdapter newAdapter) {
+            observeAdapter(newAdapter);
+            dispatchPagesReplaced();
+        }
+    };
+
+    public ViewPagerBinding(ViewPager viewPager) {
+        mViewPager = viewPager;
+    }
+
+    public ViewPager getViewPager() {
+        return mViewPager;
+    }
+
+    @Override
+    protected void onAttach() {
+        mViewPager.addOnPageChangeListener(mPageChangeListener);
+        mViewPager.addOnAdapterChangeListener(mAdapterChangeListener);
+        observeAdapter(mViewPager.getAdapter());
+    }
+
+    @Override
+    protected void onDetach() {
+        mViewPager.removeOnPageChangeListener(mPageChangeListener);
+        mViewPager.removeOnAdapterChangeListener(mAdapterChangeListener);
+        observeAdapter(null);
+    }
+
+    /**
+     * 监听adapter的数据变化, 会取消对之前adapter的监听
+     */
+    private void observeAdapter(PagerAdapter adapter) {
+        if (mObservedAdapter != null) {
+            mObservedAdapter.unregisterDataSetObserver(mAdapterObserver);
+        }
+        mObservedAdapter = adapter;
+        if (adapter != null) {
+            adapter.registerDataSetObserver(mAdapterObserver);
+        }
+    }
+
+    @Override
+    public boolean hasPages() {
+        return mViewPager.getAdapter() != null;
+    }
+
+    @Override
+    public int getCount() {
+        PagerAdapter adapter = mViewPager.getAdapter();
+        return adapter != null ? adapter.getCount() : 0;
+    }
+
+    @Override
+    public CharSequence getPageTitle(int position) {
+        return mViewPager.getAdapter().getPageTitle(position);
+    }
+
+    @Override
+    public int getCurrentItem() {
+        return mViewPager.getCurrentItem();
+    }
+
+    @Override
+    public void setCurrentItem(int position) {
+        mViewPager.setCurrentItem(position);
+    }
+
+    @Override
+    public int getOffscreenPageCount() {
+        return mViewPager.getOffscreenPageLimit();
+    }
+
+    @Override
+    public SlidingTabLayout.TabIdProvider getTabIdProvider() {
+        PagerAdapter adapter = mViewPager.getAdapter();
+        return adapter instanceof SlidingTabLayout.TabIdProvider ? (SlidingTabLayout.TabIdProvider) adapter : null;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.mytablayout.tab;
+
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentActivity;
+import android.support.v4.app.FragmentManager;
+import android.support.v4.view.ViewPager;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.example.mytablayout.CommonFragment;
+import com.example.mytablayout.LazyFragment;
+import com.example.mytablayout.LruFragmentPagerAdapter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 向后拖动第一页时, 正在露出的第二页(ViewPager已经创建但是内容延迟加载)在onPageSelected()之前加载完内容,
+ * 之后才创建离屏范围之外的第三页
+ *
+ * Robolectric不会在空闲时执行IdleHandler, 测试中直接调用queueIdle()
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class PrefetchSchedulerTest {
+    private static final int PAGE_COUNT = 5;
+    private static final int FRAME_MS = 16;
+
+    private ViewPager mViewPager;
+    private LazyPagerAdapter mAdapter;
+    private final List<Integer> mPrefetchedPages = new ArrayList<>();
+    private PrefetchScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        FragmentActivity activity = Robolectric.buildActivity(FragmentActivity.class).setup().get();
+        mViewPager = new ViewPager(activity);
+        mViewPager.setId(View.generateViewId());
+        mAdapter = new LazyPagerAdapter(activity.getSupportFragmentManager());
+        mViewPager.setAdapter(mAdapter);
+        activity.setContentView(mViewPager, new ViewGroup.LayoutParams(1080, 1920));
+        // 执行第一次布局, ViewPager创建当前页和两侧的页面
+        ShadowLooper.idleMainLooper();
+
+        mScheduler = new PrefetchScheduler(new PrefetchScheduler.Callback() {
+            @Override
+            public void onPrefetchTabs(int direction) {
+            }
+
+            @Override
+            public void onPrefetchPage(int position) {
+                mPrefetchedPages.add(position);
+                mAdapter.prefetchPage(position);
+            }
+
+            @Override
+            public void onPrefetchCancelled() {
+                mAdapter.cancelPrefetch();
+            }
+        });
+    }
+
+    @Test
+    public void dragForward_loadsRevealedNeighbourBeforeSelection() {
+        LazyFragment neighbour = mAdapter.getCreatedFragment(1);
+        assertNotNull("ViewPager did not instantiate the neighbour", neighbour);
+        assertFalse(neighbour.isContentLoaded());
+        assertEquals(0, mViewPager.getCurrentItem());
+
+        // 慢速拖动第一页, 第二页开始露出
+        scroll(0, 0.01f);
+        scroll(0, 0.02f);
+        runIdle();
+
+        assertEquals(0, mViewPager.getCurrentItem());
+        assertTrue("revealed neighbour was not inflated before onPageSelected", neighbour.isContentLoaded());
+        // 相邻页面优先, 之后才创建offscreenPageLimit之外的页面
+        assertEquals(Arrays.asList(1, 1 + mViewPager.getOffscreenPageLimit()), mPrefetchedPages);
+        assertNotNull(mAdapter.getCreatedFragment(1 + mViewPager.getOffscreenPageLimit()));
+    }
+
+    private void scroll(int position, float positionOffset) {
+        Robolectric.getForegroundThreadScheduler().advanceBy(FRAME_MS, TimeUnit.MILLISECONDS);
+        mScheduler.onPageScrolled(position, positionOffset, PAGE_COUNT, mViewPager.getOffscreenPageLimit());
+    }
+
+    private void runIdle() {
+        while (mScheduler.queueIdle()) {
+            // 每次只处理一项
+        }
+    }
+
+    /**
+     * 延迟加载内容的页面, 记录每个位置创建的fragment
+     */
+    private static class LazyPagerAdapter extends LruFragmentPagerAdapter {
+        private final SparseArray<LazyFragment> mCreatedFragments = new SparseArray<>();
+
+        LazyPagerAdapter(FragmentManager fm) {
+            super(fm);
+        }
+
+        @Override
+        public Fragment getItem(int position) {
+            LazyFragment fragment = CommonFragment.newInstance("Page " + position, 0xFF000000)
+                    .setLazyMode(LazyFragment.LAZY_MODE_PLACEHOLDER);
+            mCreatedFragments.put(position, fragment);
+            return fragment;
+        }
+
+        @Override
+        public int getCount() {
+            return PAGE_COUNT;
+        }
+
+        LazyFragment getCreatedFragment(int position) {
+            return mCreatedFragments.get(position);
+        }
+    }
+}
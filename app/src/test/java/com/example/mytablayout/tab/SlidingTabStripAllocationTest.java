@@ -0,0 +1,222 @@
+package com.example.mytablayout.tab;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.support.annotation.NonNull;
+import android.support.v4.view.PagerAdapter;
+import android.support.v4.view.ViewPager;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * 模拟300帧的滑动, 检查SlidingTabStrip.onViewPagerPageChanged()和onDraw()没有创建任何对象,
+ * 以及SlidingTabLayout按照positionOffset插值title颜色时没有创建任何对象
+ *
+ * SlidingTabStrip attach到Activity的window上, 否则invalidate()会直接返回, 覆盖不到只重绘指示器区域的逻辑
+ * 主线程的Looper暂停, 第一次invalidate安排的traversal不会执行, 测量期间的invalidate只合并脏区域
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class SlidingTabStripAllocationTest {
+    private static final int SWIPE_FRAMES = 300;
+    private static final int TAB_COUNT = 4;
+    private static final int TAB_WIDTH = 200;
+    private static final int STRIP_HEIGHT = 100;
+
+    private Activity mActivity;
+    private CountingTabStrip mTabStrip;
+    private Canvas mCanvas;
+    private com.sun.management.ThreadMXBean mThreadMXBean;
+
+    @Before
+    public void setUp() {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        mActivity = activity;
+        mTabStrip = new CountingTabStrip(activity);
+        for (int i = 0; i < TAB_COUNT; i++) {
+            mTabStrip.addView(new View(activity), new LinearLayout.LayoutParams(TAB_WIDTH, ViewGroup.LayoutParams.MATCH_PARENT));
+        }
+        activity.setContentView(mTabStrip, new ViewGroup.LayoutParams(TAB_WIDTH * TAB_COUNT, STRIP_HEIGHT));
+        // 执行setContentView安排的measure和layout, 之后暂停Looper
+        ShadowLooper.idleMainLooper();
+        ShadowLooper.pauseMainLooper();
+        assertNotNull("tab strip is not attached to a window", mTabStrip.getWindowToken());
+        assertEquals(TAB_WIDTH * TAB_COUNT, mTabStrip.getWidth());
+
+        mCanvas = new NoOpCanvas();
+        mThreadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(mThreadMXBean.isThreadAllocatedMemorySupported());
+        mThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    public void normalModeSwipe_doesNotAllocate() {
+        mTabStrip.setIndicatorAnimationMode(SlidingTabLayout.ANI_MODE_NORMAL);
+        assertSwipeDoesNotAllocate();
+    }
+
+    @Test
+    public void tailModeSwipe_doesNotAllocate() {
+        mTabStrip.setIndicatorAnimationMode(SlidingTabLayout.ANI_MODE_TAIL);
+        mTabStrip.setIndicatorWidth(40);
+        assertSwipeDoesNotAllocate();
+    }
+
+    @Test
+    public void blendedColorSwipe_doesNotAllocate() {
+        mTabStrip.setSelectedIndicatorColors(Color.RED, Color.BLUE, Color.GREEN);
+        mTabStrip.setIndicatorBottomMargin(6);
+        assertSwipeDoesNotAllocate();
+    }
+
+    @Test
+    public void titleColorSwipe_doesNotAllocate() {
+        SlidingTabLayout layout = new SlidingTabLayout(mActivity);
+        layout.setSelectedTitleColor(new ColorStateList(
+                new int[][]{{android.R.attr.state_selected}, {}},
+                new int[]{Color.RED, Color.GRAY}));
+        ViewPager viewPager = new ViewPager(mActivity);
+        viewPager.setAdapter(new TitlePagerAdapter());
+        layout.setViewPager(viewPager);
+
+        // 先滑动一次, 排除类加载和缓存第一次创建的ColorStateList
+        swipeTitles(layout);
+
+        long start = allocatedBytes();
+        long overhead = allocatedBytes() - start;
+
+        long before = allocatedBytes();
+        swipeTitles(layout);
+        long allocated = allocatedBytes() - before - overhead;
+
+        assertEquals("title color swipe of " + SWIPE_FRAMES + " frames allocated " + allocated + " bytes", 0, allocated);
+    }
+
+    private void assertSwipeDoesNotAllocate() {
+        // 先滑动一次, 排除类加载和懒加载的对象
+        swipe();
+
+        // 读取分配字节数本身的开销
+        long start = allocatedBytes();
+        long overhead = allocatedBytes() - start;
+
+        int invalidateCount = mTabStrip.mRectInvalidateCount;
+        long before = allocatedBytes();
+        swipe();
+        long allocated = allocatedBytes() - before - overhead;
+
+        assertTrue("swipe did not invalidate the indicator region", mTabStrip.mRectInvalidateCount > invalidateCount);
+        assertEquals("swipe of " + SWIPE_FRAMES + " frames allocated " + allocated + " bytes", 0, allocated);
+    }
+
+    /**
+     * 从第一个tab滑动到最后一个tab, 每一帧都通知位置变化并绘制一次
+     */
+    private void swipe() {
+        for (int frame = 0; frame < SWIPE_FRAMES; frame++) {
+            float progress = frame * (TAB_COUNT - 1) / (float) SWIPE_FRAMES;
+            int position = Math.min((int) progress, TAB_COUNT - 1);
+            mTabStrip.onViewPagerPageChanged(position, progress - position);
+            mTabStrip.onDraw(mCanvas);
+        }
+    }
+
+    /**
+     * 与swipe()相同的滑动过程, 只执行title颜色的插值
+     */
+    private void swipeTitles(SlidingTabLayout layout) {
+        for (int frame = 0; frame < SWIPE_FRAMES; frame++) {
+            float progress = frame * (TAB_COUNT - 1) / (float) SWIPE_FRAMES;
+            int position = Math.min((int) progress, TAB_COUNT - 1);
+            layout.updateTitleColors(position, progress - position);
+        }
+    }
+
+    private long allocatedBytes() {
+        return mThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * 记录只重绘指示器区域的invalidate次数, 确认测量覆盖了这条路径
+     */
+    private static class CountingTabStrip extends SlidingTabStrip {
+        int mRectInvalidateCount;
+
+        CountingTabStrip(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void invalidate(int l, int t, int r, int b) {
+            mRectInvalidateCount++;
+            super.invalidate(l, t, r, b);
+        }
+    }
+
+    /**
+     * 只提供title的adapter, 页面本身不参与测量
+     */
+    private static class TitlePagerAdapter extends PagerAdapter {
+        @Override
+        public int getCount() {
+            return TAB_COUNT;
+        }
+
+        @Override
+        public CharSequence getPageTitle(int position) {
+            return "Tab " + position;
+        }
+
+        @NonNull
+        @Override
+        public Object instantiateItem(@NonNull ViewGroup container, int position) {
+            View view = new View(container.getContext());
+            container.addView(view);
+            return view;
+        }
+
+        @Override
+        public void destroyItem(@NonNull ViewGroup container, int position, @NonNull Object object) {
+            container.removeView((View) object);
+        }
+
+        @Override
+        public boolean isViewFromObject(@NonNull View view, @NonNull Object object) {
+            return view == object;
+        }
+    }
+
+    /**
+     * 不记录绘制操作的Canvas, Robolectric的ShadowCanvas会为每次绘制创建记录对象
+     */
+    private static class NoOpCanvas extends Canvas {
+        @Override
+        public void drawRect(float left, float top, float right, float bottom, Paint paint) {
+        }
+
+        @Override
+        public void drawRoundRect(RectF rect, float rx, float ry, Paint paint) {
+        }
+    }
+}
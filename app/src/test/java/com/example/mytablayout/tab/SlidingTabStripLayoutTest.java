@@ -0,0 +1,94 @@
+package com.example.mytablayout.tab;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * SlidingTabStrip自己实现的measure/layout与LinearLayout一致, 选中的title字体变大之后仍然与其余title基线对齐
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class SlidingTabStripLayoutTest {
+    private static final int TAB_WIDTH = 200;
+    private static final int STRIP_HEIGHT = 100;
+
+    private Context mContext;
+    private SlidingTabStrip mTabStrip;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mTabStrip = new SlidingTabStrip(mContext);
+    }
+
+    @Test
+    public void selectedAndUnselectedTabs_shareBaseline() {
+        // 选中的tab字体较大, 高度和基线都比其余tab大
+        View selected = addTab(60, 48);
+        View unselected = addTab(40, 32);
+        measureAndLayout();
+
+        assertEquals(selected.getTop() + selected.getBaseline(), unselected.getTop() + unselected.getBaseline());
+        assertEquals(0, selected.getTop());
+        assertEquals(16, unselected.getTop());
+    }
+
+    @Test
+    public void baselineAlignmentDisabled_placesTabsAtTop() {
+        mTabStrip.setBaselineAligned(false);
+        View selected = addTab(60, 48);
+        View unselected = addTab(40, 32);
+        measureAndLayout();
+
+        assertEquals(0, selected.getTop());
+        assertEquals(0, unselected.getTop());
+    }
+
+    private View addTab(int height, int baseline) {
+        View tab = new BaselineView(mContext, height, baseline);
+        mTabStrip.addView(tab, new LinearLayout.LayoutParams(TAB_WIDTH, ViewGroup.LayoutParams.WRAP_CONTENT));
+        return tab;
+    }
+
+    private void measureAndLayout() {
+        int width = TAB_WIDTH * mTabStrip.getChildCount();
+        mTabStrip.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(STRIP_HEIGHT, View.MeasureSpec.EXACTLY));
+        mTabStrip.layout(0, 0, width, STRIP_HEIGHT);
+    }
+
+    /**
+     * 固定高度和基线的tab, 不依赖Robolectric中的文本测量
+     */
+    private static class BaselineView extends View {
+        private final int mHeight;
+        private final int mBaseline;
+
+        BaselineView(Context context, int height, int baseline) {
+            super(context);
+            mHeight = height;
+            mBaseline = baseline;
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            setMeasuredDimension(View.MeasureSpec.getSize(widthMeasureSpec), mHeight);
+        }
+
+        @Override
+        public int getBaseline() {
+            return mBaseline;
+        }
+    }
+}
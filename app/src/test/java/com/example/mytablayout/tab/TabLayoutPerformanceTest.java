@@ -0,0 +1,405 @@
+package com.example.mytablayout.tab;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.design.widget.TabLayout;
+import android.support.v4.view.PagerAdapter;
+import android.support.v4.view.ViewPager;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import com.example.mytablayout.R;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * SlidingTabLayout与design库TabLayout的性能对比, 分别在4, 50和500个tab下测量:
+ * 1. bind: setViewPager()/setupWithViewPager()以及之后的第一次measure和layout
+ * 2. dataChange: 修改所有title之后adapter.notifyDataSetChanged(), SlidingTabLayout通过ViewPagerBinding增量更新,
+ *    TabLayout重新创建所有tab
+ * 3. swipe: 从第一页滑到最后一页, 共SWIPE_CALLBACKS次onPageScrolled, 每次回调之后执行一帧(主线程任务和需要的布局)
+ *
+ * 每一项记录耗时, 分配的字节数(ThreadMXBean只能统计字节数, 用来代替分配次数)和view的数量,
+ * 结果写入系统属性tab.performance.reportDir指定的目录(见app/build.gradle, 默认是app/build/reports/tab-performance)
+ * 中的results.json
+ * 分配的字节数或者view的数量超出预算(相对于TabLayout的倍数加上固定的余量)时测试失败,
+ * 耗时受机器负载影响较大, 只记录在报告中, 不参与判断
+ *
+ * view没有attach到window, 每一帧手动measure和layout, 不受Robolectric调度traversal的影响
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class TabLayoutPerformanceTest {
+    private static final int[] TAB_COUNTS = {4, 50, 500};
+    private static final int SWIPE_CALLBACKS = 1000;
+    private static final int ROOT_WIDTH = 1080;
+    private static final int ROOT_HEIGHT = 1920;
+    private static final String REPORT_DIR_PROPERTY = "tab.performance.reportDir";
+    private static final String REPORT_FILE_NAME = "results.json";
+
+    /*预算: SlidingTabLayout的数值不超过TabLayout的数值 * RATIO + SLACK, 余量用来吸收数值很小时的抖动*/
+    private static final float ALLOCATION_BUDGET_RATIO = 1.5f;
+    private static final long ALLOCATION_BUDGET_SLACK_BYTES = 64 * 1024;
+    private static final float VIEW_COUNT_BUDGET_RATIO = 1f;
+
+    private Context mContext;
+    private com.sun.management.ThreadMXBean mThreadMXBean;
+
+    @Before
+    public void setUp() {
+        // TabLayout要求AppCompat主题
+        mContext = new ContextThemeWrapper(RuntimeEnvironment.application, R.style.AppTheme);
+        mThreadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(mThreadMXBean.isThreadAllocatedMemorySupported());
+        mThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    public void slidingTabLayout_staysWithinBudgetOfDesignTabLayout() throws Exception {
+        // 先完整执行一次, 排除类加载和第一次执行的开销
+        measure(new SlidingTabWidget(), TAB_COUNTS[0]);
+        measure(new DesignTabWidget(), TAB_COUNTS[0]);
+
+        List<Result> results = new ArrayList<>();
+        StringBuilder failures = new StringBuilder();
+        for (int tabCount : TAB_COUNTS) {
+            Result sliding = measure(new SlidingTabWidget(), tabCount);
+            Result design = measure(new DesignTabWidget(), tabCount);
+            results.add(sliding);
+            results.add(design);
+
+            checkAllocation(failures, "bind", sliding, sliding.mBindBytes, design.mBindBytes);
+            checkAllocation(failures, "dataChange", sliding, sliding.mDataChangeBytes, design.mDataChangeBytes);
+            checkAllocation(failures, "swipe", sliding, sliding.mSwipeBytes, design.mSwipeBytes);
+            if (sliding.mViewCount > design.mViewCount * VIEW_COUNT_BUDGET_RATIO) {
+                failures.append(sliding).append(": viewCount ").append(sliding.mViewCount)
+                        .append(" > ").append(design.mViewCount).append('\n');
+            }
+        }
+
+        // 先写报告, 超出预算时也能看到完整的数据
+        File reportFile = writeReport(results);
+        assertTrue("over budget, see " + reportFile.getAbsolutePath() + "\n" + failures, failures.length() == 0);
+    }
+
+    private Result measure(TabWidget widget, int tabCount) {
+        Result result = new Result(widget.getName(), tabCount);
+        TitlePagerAdapter adapter = new TitlePagerAdapter(tabCount);
+        RecordingViewPager viewPager = new RecordingViewPager(mContext);
+        viewPager.setAdapter(adapter);
+        FrameLayout root = new FrameLayout(mContext);
+        root.addView(widget.getView(), new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT));
+
+        long startBytes = allocatedBytes();
+        long start = System.nanoTime();
+        widget.bind(viewPager);
+        runFrame(root, true);
+        result.mBindNanos = System.nanoTime() - start;
+        result.mBindBytes = allocatedBytes() - startBytes;
+        result.mViewCount = countViews(widget.getView());
+
+        adapter.setTitleSuffix("*");
+        startBytes = allocatedBytes();
+        start = System.nanoTime();
+        adapter.notifyDataSetChanged();
+        runFrame(root, false);
+        result.mDataChangeNanos = System.nanoTime() - start;
+        result.mDataChangeBytes = allocatedBytes() - startBytes;
+
+        // 复制一份, 回调过程中不受增删的影响
+        List<ViewPager.OnPageChangeListener> listeners = new ArrayList<>(viewPager.getRecordedListeners());
+        startBytes = allocatedBytes();
+        start = System.nanoTime();
+        swipe(root, listeners, tabCount);
+        result.mSwipeNanos = System.nanoTime() - start;
+        result.mSwipeBytes = allocatedBytes() - startBytes;
+        return result;
+    }
+
+    /**
+     * 按照ViewPager拖动时的顺序把事件直接分发给控件注册在ViewPager上的listener, 两个控件收到完全相同的回调
+     */
+    private void swipe(View root, List<ViewPager.OnPageChangeListener> listeners, int tabCount) {
+        dispatchScrollStateChanged(listeners, ViewPager.SCROLL_STATE_DRAGGING);
+        int selected = 0;
+        for (int i = 0; i < SWIPE_CALLBACKS; i++) {
+            float progress = i * (tabCount - 1) / (float) SWIPE_CALLBACKS;
+            int position = (int) progress;
+            float offset = progress - position;
+            for (int k = 0; k < listeners.size(); k++) {
+                listeners.get(k).onPageScrolled(position, offset, (int) (offset * ROOT_WIDTH));
+            }
+            // 与ViewPager一致, 滑过一半时选中下一页
+            int nearest = offset >= 0.5f ? position + 1 : position;
+            if (nearest != selected) {
+                selected = nearest;
+                for (int k = 0; k < listeners.size(); k++) {
+                    listeners.get(k).onPageSelected(selected);
+                }
+            }
+            runFrame(root, false);
+        }
+        for (int k = 0; k < listeners.size(); k++) {
+            listeners.get(k).onPageScrolled(tabCount - 1, 0f, 0);
+        }
+        dispatchScrollStateChanged(listeners, ViewPager.SCROLL_STATE_IDLE);
+        runFrame(root, false);
+    }
+
+    private static void dispatchScrollStateChanged(List<ViewPager.OnPageChangeListener> listeners, int state) {
+        for (int k = 0; k < listeners.size(); k++) {
+            listeners.get(k).onPageScrollStateChanged(state);
+        }
+    }
+
+    /**
+     * 一帧: 执行主线程的任务(包括Choreographer的回调), 需要时重新measure和layout
+     */
+    private static void runFrame(View root, boolean forceLayout) {
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        if (forceLayout || root.isLayoutRequested()) {
+            root.measure(View.MeasureSpec.makeMeasureSpec(ROOT_WIDTH, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(ROOT_HEIGHT, View.MeasureSpec.EXACTLY));
+            root.layout(0, 0, root.getMeasuredWidth(), root.getMeasuredHeight());
+        }
+    }
+
+    private static int countViews(View view) {
+        int count = 1;
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                count += countViews(group.getChildAt(i));
+            }
+        }
+        return count;
+    }
+
+    private static void checkAllocation(StringBuilder failures, String phase, Result sliding, long slidingBytes, long designBytes) {
+        long budget = (long) (designBytes * ALLOCATION_BUDGET_RATIO) + ALLOCATION_BUDGET_SLACK_BYTES;
+        if (slidingBytes > budget) {
+            failures.append(sliding).append(": ").append(phase).append(" allocated ").append(slidingBytes)
+                    .append(" bytes, budget ").append(budget).append(" bytes\n");
+        }
+    }
+
+    private static File writeReport(List<Result> results) throws IOException {
+        File dir = getReportDir();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("cannot create " + dir);
+        }
+        File reportFile = new File(dir, REPORT_FILE_NAME);
+        Writer writer = new FileWriter(reportFile);
+        try {
+            writer.write("{\n  \"swipeCallbacks\": " + SWIPE_CALLBACKS + ",\n  \"results\": [\n");
+            for (int i = 0; i < results.size(); i++) {
+                writer.write("    " + results.get(i).toJson() + (i < results.size() - 1 ? ",\n" : "\n"));
+            }
+            writer.write("  ]\n}\n");
+        } finally {
+            writer.close();
+        }
+        return reportFile;
+    }
+
+    /**
+     * 报告目录, 由Gradle通过系统属性传入; 在IDE中直接运行时根据测试类的输出目录找到模块的build目录
+     */
+    private static File getReportDir() throws IOException {
+        String reportDir = System.getProperty(REPORT_DIR_PROPERTY);
+        if (reportDir != null && !reportDir.isEmpty()) {
+            return new File(reportDir);
+        }
+        try {
+            File dir = new File(TabLayoutPerformanceTest.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            while (dir != null && !"build".equals(dir.getName())) {
+                dir = dir.getParentFile();
+            }
+            if (dir != null) {
+                return new File(dir, "reports/tab-performance");
+            }
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+        throw new IOException("set -D" + REPORT_DIR_PROPERTY + " to the report directory");
+    }
+
+    private long allocatedBytes() {
+        return mThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * 记录通过公开api注册的OnPageChangeListener, 测试直接向它们分发滑动回调
+     */
+    private static class RecordingViewPager extends ViewPager {
+        private final List<OnPageChangeListener> mRecordedListeners = new ArrayList<>();
+
+        RecordingViewPager(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void addOnPageChangeListener(@NonNull OnPageChangeListener listener) {
+            super.addOnPageChangeListener(listener);
+            mRecordedListeners.add(listener);
+        }
+
+        @Override
+        public void removeOnPageChangeListener(@NonNull OnPageChangeListener listener) {
+            super.removeOnPageChangeListener(listener);
+            mRecordedListeners.remove(listener);
+        }
+
+        List<OnPageChangeListener> getRecordedListeners() {
+            return mRecordedListeners;
+        }
+    }
+
+    /**
+     * 被测的控件
+     */
+    private interface TabWidget {
+        String getName();
+
+        View getView();
+
+        void bind(ViewPager viewPager);
+    }
+
+    private class SlidingTabWidget implements TabWidget {
+        private final SlidingTabLayout mLayout = new SlidingTabLayout(mContext);
+
+        @Override
+        public String getName() {
+            return "SlidingTabLayout";
+        }
+
+        @Override
+        public View getView() {
+            return mLayout;
+        }
+
+        @Override
+        public void bind(ViewPager viewPager) {
+            mLayout.setViewPager(viewPager);
+        }
+    }
+
+    private class DesignTabWidget implements TabWidget {
+        private final TabLayout mLayout = new TabLayout(mContext);
+
+        DesignTabWidget() {
+            mLayout.setTabMode(TabLayout.MODE_SCROLLABLE);
+        }
+
+        @Override
+        public String getName() {
+            return "TabLayout";
+        }
+
+        @Override
+        public View getView() {
+            return mLayout;
+        }
+
+        @Override
+        public void bind(ViewPager viewPager) {
+            mLayout.setupWithViewPager(viewPager);
+        }
+    }
+
+    private static class Result {
+        final String mWidget;
+        final int mTabCount;
+        long mBindNanos;
+        long mBindBytes;
+        long mDataChangeNanos;
+        long mDataChangeBytes;
+        long mSwipeNanos;
+        long mSwipeBytes;
+        int mViewCount;
+
+        Result(String widget, int tabCount) {
+            mWidget = widget;
+            mTabCount = tabCount;
+        }
+
+        String toJson() {
+            return "{\"widget\": \"" + mWidget + "\", \"tabs\": " + mTabCount
+                    + ", \"bindNanos\": " + mBindNanos + ", \"bindBytes\": " + mBindBytes
+                    + ", \"dataChangeNanos\": " + mDataChangeNanos + ", \"dataChangeBytes\": " + mDataChangeBytes
+                    + ", \"swipeNanos\": " + mSwipeNanos + ", \"swipeBytes\": " + mSwipeBytes
+                    + ", \"viewCount\": " + mViewCount + "}";
+        }
+
+        @Override
+        public String toString() {
+            return mWidget + "[" + mTabCount + " tabs]";
+        }
+    }
+
+    /**
+     * 只提供title的adapter, 页面是空的View
+     */
+    private static class TitlePagerAdapter extends PagerAdapter {
+        private final int mCount;
+        private String mTitleSuffix = "";
+
+        TitlePagerAdapter(int count) {
+            mCount = count;
+        }
+
+        void setTitleSuffix(String suffix) {
+            mTitleSuffix = suffix;
+        }
+
+        @Override
+        public int getCount() {
+            return mCount;
+        }
+
+        @Override
+        public CharSequence getPageTitle(int position) {
+            return "Tab " + position + mTitleSuffix;
+        }
+
+        @NonNull
+        @Override
+        public Object instantiateItem(@NonNull ViewGroup container, int position) {
+            View page = new View(container.getContext());
+            container.addView(page);
+            return page;
+        }
+
+        @Override
+        public void destroyItem(@NonNull ViewGroup container, int position, @NonNull Object object) {
+            container.removeView((View) object);
+        }
+
+        @Override
+        public boolean isViewFromObject(@NonNull View view, @NonNull Object object) {
+            return view == object;
+        }
+    }
+}
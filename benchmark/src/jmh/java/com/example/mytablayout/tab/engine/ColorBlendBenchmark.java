@@ -0,0 +1,69 @@
+package com.example.mytablayout.tab.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 颜色混合和指示器的取色
+ *
+ * blendSamePair: 滑动过程中连续多帧都是同一对颜色, 命中上一次的表
+ * blendRotatingPairs: 颜色组合超过ColorTransitions的缓存数量, 每次都要重建表, 是最差的情况
+ * indicatorColor: TabLayoutEngine.getIndicatorColor(), 与SlidingTabStrip默认的ColorShader一样按position循环取色
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ColorBlendBenchmark {
+    private static final int STEPS = 64;                             // 每次调用前进1/STEPS, 必须是2的幂
+    private static final int PAIR_COUNT = 32;                        // 大于ColorTransitions缓存的表的数量, 必须是2的幂
+
+    private final ColorTransitions mColorTransitions = new ColorTransitions();
+    private final TabLayoutEngine mEngine = new TabLayoutEngine();
+    private final int[] mIndicatorColors = {0xFFFF4081, 0xFF3F51B5, 0xFF4CAF50, 0xFFFFC107};
+    private final TabColorShader mShader = new TabColorShader() {
+        @Override
+        public int getIndicatorColor(int position) {
+            return mIndicatorColors[position % mIndicatorColors.length];
+        }
+    };
+    private final int[] mPairColors = new int[PAIR_COUNT + 1];
+    private int mStep;
+    private int mPosition;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < mPairColors.length; i++) {
+            mPairColors[i] = 0xFF000000 | (i * 0x0A1B2C);
+        }
+    }
+
+    @Benchmark
+    public int blendSamePair() {
+        mStep = (mStep + 1) & (STEPS - 1);
+        return mColorTransitions.blend(0xFFFF4081, 0xFF3F51B5, mStep / (float) STEPS);
+    }
+
+    @Benchmark
+    public int blendRotatingPairs() {
+        mStep = (mStep + 1) & (PAIR_COUNT - 1);
+        return mColorTransitions.blend(mPairColors[mStep], mPairColors[mStep + 1], 0.5f);
+    }
+
+    @Benchmark
+    public int indicatorColor() {
+        mPosition = (mPosition + 1) & 1023;
+        mStep = (mStep + 1) & (STEPS - 1);
+        return mEngine.getIndicatorColor(mShader, mPosition, mPosition + 1, mStep / (float) STEPS);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.mytablayout.tab.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SlidingTabStrip.onDraw中每一帧的指示器插值: 通过TabLayoutEngine按照移动轨迹计算左右边界, 再混合前后两个tab的颜色
+ * 与computeIndicatorBounds()的调用一致, 每次调用前进一帧, 一次完整的滑动为FRAMES帧
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class IndicatorMotionBenchmark {
+    private static final int FRAMES = 64;                            // 一次滑动的帧数, 必须是2的幂
+    private static final int TAB_WIDTH = 240;
+    private static final int INDICATOR_WIDTH = 60;
+
+    @Param({"" + IndicatorMotions.MODE_NORMAL, "" + IndicatorMotions.MODE_TAIL})
+    public int mAnimationMode;
+
+    private final TabLayoutEngine mEngine = new TabLayoutEngine();
+    private final int[] mIndicatorColors = {0xFFFF4081, 0xFF3F51B5, 0xFF4CAF50};
+    private final TabColorShader mShader = new TabColorShader() {
+        @Override
+        public int getIndicatorColor(int position) {
+            return mIndicatorColors[position % mIndicatorColors.length];
+        }
+    };
+    private final int[] mTabWidths = {TAB_WIDTH, TAB_WIDTH, TAB_WIDTH};
+    private final float[] mEdges = new float[2];
+    private int mFrame;
+
+    @Setup
+    public void setUp() {
+        mEngine.setIndicatorMotion(IndicatorMotions.forMode(mAnimationMode));
+        mEngine.setIndicatorWidth(INDICATOR_WIDTH);
+        mEngine.layoutSequential(mTabWidths, mTabWidths.length, 0, 0);
+    }
+
+    @Benchmark
+    public void indicatorFrame(Blackhole blackhole) {
+        mFrame = (mFrame + 1) & (FRAMES - 1);
+        float offset = mFrame / (float) FRAMES;
+        int position = mFrame & 1;
+
+        boolean moving = mEngine.computeIndicatorEdges(position, offset, mEdges);
+        int color = mEngine.getIndicatorColor(mShader, position, moving ? position + 1 : -1, offset);
+
+        blackhole.consume(mEdges[0]);
+        blackhole.consume(mEdges[1]);
+        blackhole.consume(color);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.mytablayout.tab.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SlidingTabStrip.onMeasure中的tab分配(TabLayoutEngine.distribute), DISTRIBUTE_MODE_AVERAGE_SEGMENTATION模式
+ * 容器宽度分别为内容宽度的2倍和一半, 对应tab之间有间隔和tab互相重叠两种情况
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TabDistributionBenchmark {
+    private static final int MIN_TAB_WIDTH = 80;
+    private static final int MAX_TAB_WIDTH = 320;
+
+    @Param({"4", "100", "10000"})
+    public int mTabCount;
+
+    private int[] mWidths;
+    private int[] mLefts;
+    private int mTotalTabWidth;
+
+    @Setup
+    public void setUp() {
+        mWidths = new int[mTabCount];
+        mLefts = new int[mTabCount];
+        Random random = new Random(42);
+        mTotalTabWidth = 0;
+        for (int i = 0; i < mTabCount; i++) {
+            mWidths[i] = MIN_TAB_WIDTH + random.nextInt(MAX_TAB_WIDTH - MIN_TAB_WIDTH);
+            mTotalTabWidth += mWidths[i];
+        }
+    }
+
+    @Benchmark
+    public int averageSegmentation() {
+        TabLayoutEngine.distribute(TabLayoutEngine.DISTRIBUTE_MODE_AVERAGE_SEGMENTATION,
+                mWidths, mTabCount, mTotalTabWidth, mTotalTabWidth * 2, mLefts);
+        return mLefts[mTabCount - 1];
+    }
+
+    @Benchmark
+    public int averageSegmentationOverflow() {
+        TabLayoutEngine.distribute(TabLayoutEngine.DISTRIBUTE_MODE_AVERAGE_SEGMENTATION,
+                mWidths, mTabCount, mTotalTabWidth, mTotalTabWidth / 2, mLefts);
+        return mLefts[0];
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.mytablayout.tab.engine;
+
+/**
+ * 颜色渐变表, 滑动时指示器和title的颜色通过查表得到, 每一帧不再按通道做浮点运算
+ *
+ * 每一对(起始颜色, 结束颜色)预先计算STEPS + 1个ARGB颜色, 查表时把fraction映射到最近的一项
+ * 相邻tab的颜色通常只有少数几种组合, 所以最多缓存MAX_TABLES张表, 超出时按照创建顺序覆盖最早的表
+ * 所有的表在创建时一次分配, 之后查表和重建都不会创建对象
+ *
+ * 只在一个线程中使用, 不依赖Android的api
+ */
+public final class ColorTransitions {
+    public static final int STEPS = 64;                                    // 每张表的精度, fraction被量化为1/STEPS
+    private static final int MAX_TABLES = 16;                        // 最多缓存的颜色组合数量
+
+    private final int[] mFromColors = new int[MAX_TABLES];
+    private final int[] mToColors = new int[MAX_TABLES];
+    private final int[][] mTables = new int[MAX_TABLES][STEPS + 1];
+    private int mTableCount;                                         // 已经计算好的表的数量
+    private int mNextSlot;                                           // 表满了之后下一次覆盖的位置
+    private int mLastTable = -1;                                     // 上一次命中的表, 滑动时连续多帧都是同一对颜色
+
+    /**
+     * 返回从fromColor到toColor渐变到fraction位置的颜色
+     */
+    public int blend(int fromColor, int toColor, float fraction) {
+        if (fromColor == toColor || fraction <= 0f) {
+            return fromColor;
+        }
+        if (fraction >= 1f) {
+            return toColor;
+        }
+        int[] table = getTable(fromColor, toColor);
+        return table[(int) (fraction * STEPS + 0.5f)];
+    }
+
+    /**
+     * 颜色发生变化之后丢弃所有的表, 表本身的内存保留下来复用
+     */
+    public void clear() {
+        mTableCount = 0;
+        mNextSlot = 0;
+        mLastTable = -1;
+    }
+
+    private int[] getTable(int fromColor, int toColor) {
+        if (mLastTable >= 0 && mFromColors[mLastTable] == fromColor && mToColors[mLastTable] == toColor) {
+            return mTables[mLastTable];
+        }
+        for (int i = 0; i < mTableCount; i++) {
+            if (mFromColors[i] == fromColor && mToColors[i] == toColor) {
+                mLastTable = i;
+                return mTables[i];
+            }
+        }
+
+        int slot;
+        if (mTableCount < MAX_TABLES) {
+            slot = mTableCount++;
+        } else {
+            slot = mNextSlot;
+            mNextSlot = (mNextSlot + 1) % MAX_TABLES;
+        }
+        mFromColors[slot] = fromColor;
+        mToColors[slot] = toColor;
+        fillTable(mTables[slot], fromColor, toColor);
+        mLastTable = slot;
+        return mTables[slot];
+    }
+
+    /**
+     * 按照ARGB四个通道分别线性插值, 只在建表时计算一次
+     */
+    private static void fillTable(int[] table, int fromColor, int toColor) {
+        int fromA = fromColor >>> 24;
+        int fromR = (fromColor >> 16) & 0xFF;
+        int fromG = (fromColor >> 8) & 0xFF;
+        int fromB = fromColor & 0xFF;
+        int toA = toColor >>> 24;
+        int toR = (toColor >> 16) & 0xFF;
+        int toG = (toColor >> 8) & 0xFF;
+        int toB = toColor & 0xFF;
+        for (int step = 0; step <= STEPS; step++) {
+            int inverse = STEPS - step;
+            int a = (fromA * inverse + toA * step + STEPS / 2) / STEPS;
+            int r = (fromR * inverse + toR * step + STEPS / 2) / STEPS;
+            int g = (fromG * inverse + toG * step + STEPS / 2) / STEPS;
+            int b = (fromB * inverse + toB * step + STEPS / 2) / STEPS;
+            table[step] = (a << 24) | (r << 16) | (g << 8) | b;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.mytablayout.tab.engine;
+
+/**
+ * 计算指示器在两个tab之间移动时的左右边界
+ * 滑动时每一帧都会调用, 实现中不要创建对象, 开方和三角函数等曲线可以预先计算成表
+ */
+public interface IndicatorMotion {
+    /**
+     * @param offset   从当前tab滑向下一个tab的进度, 0到1
+     * @param outEdges 输出结果, outEdges[0]为left, outEdges[1]为right
+     */
+    void getIndicatorEdges(float offset, float fromLeft, float fromRight, float toLeft, float toRight,
+                           float[] outEdges);
+}
@@ -0,0 +1,122 @@
+package com.example.mytablayout.tab.engine;
+
+/**
+ * 内置的指示器移动轨迹
+ *
+ * 非线性的曲线(平方, 开方, 缓动, 正弦)在类加载时采样成固定大小的float表,
+ * 滑动时只做查表和一次线性插值, 每一帧不再调用Math.sqrt/Math.pow/Math.sin
+ */
+public final class IndicatorMotions {
+    public static final int MODE_NORMAL = 0;                         // 无变化平移
+    public static final int MODE_TAIL = 1;                           // 带小尾巴的效果
+    public static final int MODE_STRETCH = 2;                        // 毛毛虫效果, 先伸长再收缩
+    public static final int MODE_DOT = 3;                            // 移动时缩小成一个点, 到达后展开
+
+    private static final int TABLE_SIZE = 256;                       // 每张表的采样数量, 表长度为TABLE_SIZE + 1
+    private static final float DOT_MIN_SCALE = 0.2f;                 // DOT模式在中点时指示器宽度缩小到的比例
+
+    private static final float[] SQUARE = new float[TABLE_SIZE + 1]; // x * x
+    private static final float[] SQRT = new float[TABLE_SIZE + 1];   // sqrt(x)
+    private static final float[] EASE = new float[TABLE_SIZE + 1];   // (1 - cos(PI * x)) / 2, 两端慢中间快
+    private static final float[] SINE = new float[TABLE_SIZE + 1];   // sin(PI * x), 两端为0中点为1
+
+    static {
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            double x = (double) i / TABLE_SIZE;
+            SQUARE[i] = (float) (x * x);
+            SQRT[i] = (float) Math.sqrt(x);
+            EASE[i] = (float) ((1 - Math.cos(Math.PI * x)) / 2);
+            SINE[i] = (float) Math.sin(Math.PI * x);
+        }
+    }
+
+    private IndicatorMotions() {
+    }
+
+    /**
+     * 查表, x超出[0, 1]时取两端的值
+     */
+    static float lookup(float[] table, float x) {
+        if (x <= 0f) {
+            return table[0];
+        }
+        if (x >= 1f) {
+            return table[TABLE_SIZE];
+        }
+        float position = x * TABLE_SIZE;
+        int index = (int) position;
+        float fraction = position - index;
+        return table[index] + (table[index + 1] - table[index]) * fraction;
+    }
+
+    /**
+     * 返回动画模式对应的内置轨迹, 未知的模式使用LINEAR
+     */
+    public static IndicatorMotion forMode(int mode) {
+        switch (mode) {
+            case MODE_TAIL:
+                return TAIL;
+            case MODE_STRETCH:
+                return STRETCH;
+            case MODE_DOT:
+                return DOT;
+            case MODE_NORMAL:
+            default:
+                return LINEAR;
+        }
+    }
+
+    /**
+     * 无变化平移, 两条边同时线性移动
+     */
+    public static final IndicatorMotion LINEAR = new IndicatorMotion() {
+        @Override
+        public void getIndicatorEdges(float offset, float fromLeft, float fromRight, float toLeft, float toRight,
+                                      float[] outEdges) {
+            outEdges[0] = fromLeft + (toLeft - fromLeft) * offset;
+            outEdges[1] = fromRight + (toRight - fromRight) * offset;
+        }
+    };
+
+    /**
+     * 带小尾巴的效果, 右边先快后慢(sqrt), 左边先慢后快(x^2), 中间被拉长
+     */
+    public static final IndicatorMotion TAIL = new IndicatorMotion() {
+        @Override
+        public void getIndicatorEdges(float offset, float fromLeft, float fromRight, float toLeft, float toRight,
+                                      float[] outEdges) {
+            outEdges[0] = fromLeft + (toLeft - fromLeft) * lookup(SQUARE, offset);
+            outEdges[1] = fromRight + (toRight - fromRight) * lookup(SQRT, offset);
+        }
+    };
+
+    /**
+     * 毛毛虫效果, 前半段右边伸到下一个tab, 后半段左边再跟上
+     */
+    public static final IndicatorMotion STRETCH = new IndicatorMotion() {
+        @Override
+        public void getIndicatorEdges(float offset, float fromLeft, float fromRight, float toLeft, float toRight,
+                                      float[] outEdges) {
+            outEdges[0] = fromLeft + (toLeft - fromLeft) * lookup(EASE, offset * 2f - 1f);
+            outEdges[1] = fromRight + (toRight - fromRight) * lookup(EASE, offset * 2f);
+        }
+    };
+
+    /**
+     * 中心点平滑移动, 宽度在中点缩小成一个点, 到达下一个tab时再展开
+     */
+    public static final IndicatorMotion DOT = new IndicatorMotion() {
+        @Override
+        public void getIndicatorEdges(float offset, float fromLeft, float fromRight, float toLeft, float toRight,
+                                      float[] outEdges) {
+            float progress = lookup(EASE, offset);
+            float fromCenter = (fromLeft + fromRight) / 2f;
+            float toCenter = (toLeft + toRight) / 2f;
+            float center = fromCenter + (toCenter - fromCenter) * progress;
+            float width = (fromRight - fromLeft) + ((toRight - toLeft) - (fromRight - fromLeft)) * progress;
+            float halfWidth = width * (1f - (1f - DOT_MIN_SCALE) * lookup(SINE, offset)) / 2f;
+            outEdges[0] = center - halfWidth;
+            outEdges[1] = center + halfWidth;
+        }
+    };
+}
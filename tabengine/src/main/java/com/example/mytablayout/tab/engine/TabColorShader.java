@@ -0,0 +1,8 @@
+package com.example.mytablayout.tab.engine;
+
+/**
+ * 返回position对应的指示器颜色
+ */
+public interface TabColorShader {
+    int getIndicatorColor(int position);
+}
@@ -0,0 +1,298 @@
+package com.example.mytablayout.tab.engine;
+
+/**
+ * tab布局和指示器的计算, 不依赖Android的api
+ *
+ * 输入是tab的宽度, 容器的宽度, 分配模式和滑动进度, 输出tab的位置(几何信息表), 指示器的左右边界,
+ * HorizontalScrollView的滚动目标和指示器/title的颜色
+ * SlidingTabStrip把测量和布局的结果交给这里, onDraw和滑动时从这里读取; 也可以在view创建之前
+ * 根据预先知道的宽度算出布局, 例如虚拟化模式下没有view的tab
+ *
+ * 所有数组在tab数量增加时才重新分配, 查询和滑动相关的计算不创建对象
+ * 不是线程安全的, 只在一个线程中使用
+ */
+public final class TabLayoutEngine {
+    /*tab的分配模式, 与SlidingTabLayout中的同名常量一致*/
+    public static final int DISTRIBUTE_MODE_NONE = 0;                // 不分配, 内容不足一屏时居中
+    public static final int DISTRIBUTE_MODE_TAB_IN_SECTION_CENTER = 1; // 宽度分为n部分, tab在每部分居中
+    public static final int DISTRIBUTE_MODE_TAB_AS_DIVIDER = 2;      // 宽度分为n+1部分, tab的中线与分隔线重合
+    public static final int DISTRIBUTE_MODE_AVERAGE_SEGMENTATION = 3; // 每个tab的间隔相同
+
+    /*滑动时tab的对齐方式, 与SlidingTabLayout中的同名常量一致*/
+    public static final int SCROLL_MODE_LEFT = 0;                    // 被选中的tab居左
+    public static final int SCROLL_MODE_CENTER = 1;                  // 被选中的tab居中
+
+    /*tab的几何信息表*/
+    private int mTabCount;                                           // 几何信息表中tab的数量
+    private int[] mTabLefts = new int[0];                            // 每个tab的left
+    private int[] mTabRights = new int[0];                           // 每个tab的right
+    private int[] mTabCenters = new int[0];                          // 每个tab的中心
+    private int[] mTabCumulativeWidths = new int[1];                 // mTabCumulativeWidths[i]为前i个tab的宽度之和
+
+    /*指示器*/
+    private IndicatorMotion mIndicatorMotion = IndicatorMotions.LINEAR; // 指示器的移动轨迹
+    private int mIndicatorWidth;                                     // 指示器的宽度, 0表示与tab同宽
+    private final ColorTransitions mColorTransitions = new ColorTransitions(); // 指示器和title的颜色渐变表
+
+    /*------------------------------------分配-------------------------------------------------*/
+
+    /**
+     * 按照分配模式, 根据widths中前tabCount个tab的宽度计算每个tab的left, 写入outLefts, 结果相对于内容的起点
+     *
+     * @param distributeMode  DISTRIBUTE_MODE_*
+     * @param totalTabWidth   前tabCount个tab的宽度之和
+     * @param distributeWidth 参与分配的总宽度
+     */
+    public static void distribute(int distributeMode, int[] widths, int tabCount, int totalTabWidth,
+                                  int distributeWidth, int[] outLefts) {
+        int extraWidth = distributeWidth - totalTabWidth;
+        int gap = 0;
+        int x = extraWidth / 2; // 默认与Gravity.CENTER_HORIZONTAL一致, 内容不足一屏时居中
+        if (distributeMode == DISTRIBUTE_MODE_AVERAGE_SEGMENTATION && tabCount > 1) {
+            gap = extraWidth / (tabCount - 1);
+            x = 0;
+        }
+
+        for (int i = 0; i < tabCount; i++) {
+            int slotWidth = widths[i];
+            int left = x;
+            if (distributeMode == DISTRIBUTE_MODE_TAB_IN_SECTION_CENTER) {
+                // 宽度分为n部分, tab在每部分居中
+                left = (int) ((2L * i + 1) * distributeWidth / (2L * tabCount)) - slotWidth / 2;
+            } else if (distributeMode == DISTRIBUTE_MODE_TAB_AS_DIVIDER) {
+                // 宽度分为n+1部分, tab的中线与每部分的分隔线重合
+                left = (int) ((i + 1L) * distributeWidth / (tabCount + 1L)) - slotWidth / 2;
+            }
+            // 较宽的tab可能和前一个tab重叠, 向右推开
+            left = Math.max(left, x);
+            outLefts[i] = left;
+            x = left + slotWidth + gap;
+        }
+
+        // 向右推开之后可能超出了可用的宽度, 从最后一个tab开始向左收回
+        int limit = distributeWidth;
+        for (int i = tabCount - 1; i >= 0; i--) {
+            if (outLefts[i] + widths[i] <= limit) {
+                break;
+            }
+            outLefts[i] = Math.max(0, limit - widths[i]);
+            limit = outLefts[i];
+        }
+    }
+
+    /*------------------------------------几何信息表---------------------------------------------*/
+
+    /**
+     * 开始逐个设置tab的位置, 之后需要按照从0到count - 1的顺序调用setTabBounds()
+     */
+    public void resetTabBounds(int count) {
+        ensureCapacity(count);
+        mTabCount = count;
+        mTabCumulativeWidths[0] = 0;
+    }
+
+    /**
+     * 设置第index个tab的位置, 必须在resetTabBounds()之后按顺序调用
+     */
+    public void setTabBounds(int index, int left, int right) {
+        mTabLefts[index] = left;
+        mTabRights[index] = right;
+        mTabCenters[index] = (left + right) / 2;
+        mTabCumulativeWidths[index + 1] = mTabCumulativeWidths[index] + right - left;
+    }
+
+    /**
+     * 根据分配好的位置设置所有tab, 第i个tab的left为offset + lefts[i]
+     */
+    public void setTabPositions(int[] lefts, int[] widths, int count, int offset) {
+        resetTabBounds(count);
+        for (int i = 0; i < count; i++) {
+            int left = offset + lefts[i];
+            setTabBounds(i, left, left + widths[i]);
+        }
+    }
+
+    /**
+     * tab按照宽度依次排列, 相邻的tab之间间隔gap, 第一个tab的left为offset
+     */
+    public void layoutSequential(int[] widths, int count, int gap, int offset) {
+        resetTabBounds(count);
+        int left = offset;
+        for (int i = 0; i < count; i++) {
+            setTabBounds(i, left, left + widths[i]);
+            left += widths[i] + gap;
+        }
+    }
+
+    /**
+     * 清空几何信息表
+     */
+    public void clear() {
+        mTabCount = 0;
+    }
+
+    public int getTabCount() {
+        return mTabCount;
+    }
+
+    public int getTabLeft(int index) {
+        return mTabLefts[index];
+    }
+
+    public int getTabRight(int index) {
+        return mTabRights[index];
+    }
+
+    public int getTabCenter(int index) {
+        return mTabCenters[index];
+    }
+
+    public int getTabWidth(int index) {
+        return mTabRights[index] - mTabLefts[index];
+    }
+
+    /**
+     * 前count个tab的宽度之和, 不包含tab之间的间隔
+     */
+    public int getCumulativeTabWidth(int count) {
+        return mTabCumulativeWidths[count];
+    }
+
+    /**
+     * 通过横坐标查找所在的tab, 二分查找, 超出范围时返回第一个或最后一个, 没有tab时返回0
+     */
+    public int findTabIndexAt(int x) {
+        int low = 0;
+        int high = mTabCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (mTabLefts[mid] <= x) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private void ensureCapacity(int count) {
+        if (mTabLefts.length < count) {
+            mTabLefts = new int[count];
+            mTabRights = new int[count];
+            mTabCenters = new int[count];
+            mTabCumulativeWidths = new int[count + 1];
+        }
+    }
+
+    /*------------------------------------滚动---------------------------------------------------*/
+
+    /**
+     * 滑动时HorizontalScrollView的滚动目标, 在index和nextIndex两个tab之间按照offset插值
+     *
+     * @param scrollMode    SCROLL_MODE_*
+     * @param viewportWidth 可见区域的宽度, 居中对齐时使用
+     * @param leadingOffset 居左对齐时在选中的tab左侧留出的距离
+     */
+    public int getScrollTarget(int index, int nextIndex, float offset, int scrollMode, int viewportWidth,
+                               int leadingOffset) {
+        if (scrollMode == SCROLL_MODE_CENTER) {
+            int selectedCenter = mTabCenters[index];
+            int distance = mTabCenters[nextIndex] - selectedCenter;
+            return selectedCenter + (int) (offset * distance) - viewportWidth / 2;
+        }
+        int selectedLeft = mTabLefts[index];
+        int distance = mTabLefts[nextIndex] - selectedLeft;
+        return selectedLeft + (int) (offset * distance) - leadingOffset;
+    }
+
+    /*------------------------------------指示器-------------------------------------------------*/
+
+    public void setIndicatorMotion(IndicatorMotion motion) {
+        mIndicatorMotion = motion != null ? motion : IndicatorMotions.LINEAR;
+    }
+
+    /**
+     * 设置指示器的宽度, 大于0时指示器在tab上居中, 否则与tab同宽
+     */
+    public void setIndicatorWidth(int indicatorWidth) {
+        mIndicatorWidth = indicatorWidth;
+    }
+
+    /**
+     * tab上静止时指示器的left
+     */
+    public float getIndicatorLeft(int index) {
+        if (mIndicatorWidth > 0) {
+            return mTabLefts[index] + (getTabWidth(index) - mIndicatorWidth) / 2.0f;
+        }
+        return mTabLefts[index];
+    }
+
+    /**
+     * tab上静止时指示器的right
+     */
+    public float getIndicatorRight(int index) {
+        if (mIndicatorWidth > 0) {
+            return mTabRights[index] - (getTabWidth(index) - mIndicatorWidth) / 2.0f;
+        }
+        return mTabRights[index];
+    }
+
+    /**
+     * 计算指示器的左右边界, 写入outEdges[0]和outEdges[1]
+     * offset大于0并且存在下一个tab时按照移动轨迹在两个tab之间插值
+     *
+     * @return 是否处于两个tab之间
+     */
+    public boolean computeIndicatorEdges(int index, float offset, float[] outEdges) {
+        float left = getIndicatorLeft(index);
+        float right = getIndicatorRight(index);
+        if (offset > 0 && index < mTabCount - 1) {
+            mIndicatorMotion.getIndicatorEdges(offset, left, right,
+                    getIndicatorLeft(index + 1), getIndicatorRight(index + 1), outEdges);
+            return true;
+        }
+        outEdges[0] = left;
+        outEdges[1] = right;
+        return false;
+    }
+
+    /*------------------------------------颜色---------------------------------------------------*/
+
+    /**
+     * 指示器的颜色, 滑动时在两个tab的颜色之间渐变
+     *
+     * @param position     当前tab对应的position
+     * @param nextPosition 下一个tab对应的position, 小于0表示不在两个tab之间
+     */
+    public int getIndicatorColor(TabColorShader shader, int position, int nextPosition, float offset) {
+        int color = shader.getIndicatorColor(position);
+        if (nextPosition >= 0) {
+            int nextColor = shader.getIndicatorColor(nextPosition);
+            if (color != nextColor) {
+                color = mColorTransitions.blend(color, nextColor, offset);
+            }
+        }
+        return color;
+    }
+
+    /**
+     * title的颜色, 滑动时选中的tab和下一个tab之间按照offset渐变, 其余tab为normalColor
+     */
+    public int getTitleColor(int index, int selectedIndex, float offset, int normalColor, int selectedColor) {
+        if (index == selectedIndex) {
+            return offset > 0 ? mColorTransitions.blend(selectedColor, normalColor, offset) : selectedColor;
+        }
+        if (index == selectedIndex + 1 && offset > 0) {
+            return mColorTransitions.blend(normalColor, selectedColor, offset);
+        }
+        return normalColor;
+    }
+
+    /**
+     * 颜色发生变化之后调用, 丢弃缓存的渐变表
+     */
+    public void clearColorCache() {
+        mColorTransitions.clear();
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.mytablayout.tab.engine;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * TabLayoutEngine的布局, 指示器, 滚动和颜色计算, 直接在JVM上运行
+ */
+public class TabLayoutEngineTest {
+    private static final float DELTA = 0.001f;
+    private static final int[] WIDTHS = {100, 200, 100};
+
+    private TabLayoutEngine mEngine;
+    private final float[] mEdges = new float[2];
+
+    @Before
+    public void setUp() {
+        mEngine = new TabLayoutEngine();
+    }
+
+    @Test
+    public void averageSegmentation_spreadsExtraWidthBetweenTabs() {
+        int[] lefts = new int[WIDTHS.length];
+        TabLayoutEngine.distribute(TabLayoutEngine.DISTRIBUTE_MODE_AVERAGE_SEGMENTATION, WIDTHS, WIDTHS.length, 400, 600, lefts);
+
+        assertEquals(0, lefts[0]);
+        assertEquals(200, lefts[1]);
+        assertEquals(500, lefts[2]);
+    }
+
+    @Test
+    public void noDistribution_centersContentNarrowerThanContainer() {
+        int[] lefts = new int[WIDTHS.length];
+        TabLayoutEngine.distribute(TabLayoutEngine.DISTRIBUTE_MODE_NONE, WIDTHS, WIDTHS.length, 400, 600, lefts);
+
+        assertEquals(100, lefts[0]);
+        assertEquals(200, lefts[1]);
+        assertEquals(400, lefts[2]);
+    }
+
+    @Test
+    public void layoutSequential_buildsGeometryWithoutViews() {
+        mEngine.layoutSequential(WIDTHS, WIDTHS.length, 10, 5);
+
+        assertEquals(3, mEngine.getTabCount());
+        assertEquals(5, mEngine.getTabLeft(0));
+        assertEquals(115, mEngine.getTabLeft(1));
+        assertEquals(315, mEngine.getTabRight(1));
+        assertEquals(215, mEngine.getTabCenter(1));
+        assertEquals(300, mEngine.getCumulativeTabWidth(2));
+        assertEquals(0, mEngine.findTabIndexAt(-50));
+        assertEquals(1, mEngine.findTabIndexAt(200));
+        assertEquals(2, mEngine.findTabIndexAt(10000));
+    }
+
+    @Test
+    public void indicatorEdges_centerFixedWidthIndicatorOnTab() {
+        mEngine.layoutSequential(WIDTHS, WIDTHS.length, 0, 0);
+        mEngine.setIndicatorWidth(40);
+
+        assertFalse(mEngine.computeIndicatorEdges(1, 0f, mEdges));
+        assertEquals(180f, mEdges[0], DELTA);
+        assertEquals(220f, mEdges[1], DELTA);
+    }
+
+    @Test
+    public void indicatorEdges_linearMotionInterpolatesBetweenTabs() {
+        mEngine.layoutSequential(WIDTHS, WIDTHS.length, 0, 0);
+        mEngine.setIndicatorMotion(IndicatorMotions.forMode(IndicatorMotions.MODE_NORMAL));
+
+        assertTrue(mEngine.computeIndicatorEdges(0, 0.5f, mEdges));
+        assertEquals(50f, mEdges[0], DELTA);
+        assertEquals(200f, mEdges[1], DELTA);
+    }
+
+    @Test
+    public void indicatorEdges_lastTabDoesNotMove() {
+        mEngine.layoutSequential(WIDTHS, WIDTHS.length, 0, 0);
+
+        assertFalse(mEngine.computeIndicatorEdges(2, 0.5f, mEdges));
+        assertEquals(300f, mEdges[0], DELTA);
+        assertEquals(400f, mEdges[1], DELTA);
+    }
+
+    @Test
+    public void scrollTarget_leftAndCenterModes() {
+        mEngine.layoutSequential(WIDTHS, WIDTHS.length, 0, 0);
+
+        assertEquals(200 - 24, mEngine.getScrollTarget(1, 2, 0.5f, TabLayoutEngine.SCROLL_MODE_LEFT, 1000, 24));
+        assertEquals(275 - 500, mEngine.getScrollTarget(1, 2, 0.5f, TabLayoutEngine.SCROLL_MODE_CENTER, 1000, 24));
+    }
+
+    @Test
+    public void colors_blendBetweenSelectedAndNextTab() {
+        TabColorShader shader = new TabColorShader() {
+            @Override
+            public int getIndicatorColor(int position) {
+                return position == 0 ? 0xFF000000 : 0xFFFFFFFF;
+            }
+        };
+
+        assertEquals(0xFF000000, mEngine.getIndicatorColor(shader, 0, -1, 0.5f));
+        assertEquals(0xFF808080, mEngine.getIndicatorColor(shader, 0, 1, 0.5f));
+        assertEquals(0xFF000000, mEngine.getTitleColor(0, 0, 0f, 0xFFFFFFFF, 0xFF000000));
+        assertEquals(0xFF808080, mEngine.getTitleColor(1, 0, 0.5f, 0xFFFFFFFF, 0xFF000000));
+        assertEquals(0xFFFFFFFF, mEngine.getTitleColor(2, 0, 0.5f, 0xFFFFFFFF, 0xFF000000));
+    }
+}